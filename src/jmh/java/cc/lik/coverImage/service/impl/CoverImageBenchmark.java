@@ -0,0 +1,76 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.model.CoverDesign;
+import cc.lik.coverImage.model.CoverGradient;
+import cc.lik.coverImage.util.SvgTemplate;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+/**
+ * 自定义封面图：渐变解析与 SVG 模板渲染
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoverImageBenchmark {
+    private static final String GRADIENT = "135deg, #ff9a9e 0%, #fad0c4 40%, #a18cd1 70%, #fbc2eb 100%";
+    private static final String STOPS = "#ff9a9e, #fad0c4, #a18cd1, #fbc2eb";
+
+    private SvgTemplate template;
+    private CoverDesign design;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/static/cover.svg")) {
+            if (in == null) {
+                throw new IllegalStateException("找不到封面模板 /static/cover.svg");
+            }
+            template = SvgTemplate.compile(new String(in.readAllBytes(), StandardCharsets.UTF_8),
+                Set.of("title1", "title2"));
+        }
+        // 200x200 PNG 的 data URI 约 40KB，与 LogoServiceImpl 缩放后的典型结果相当
+        String logo = "data:image/png;base64," + "iVBORw0KGgo".repeat(3700);
+        design = new CoverDesign("Halo", "<插件>", logo,
+            CoverImageGeneratorImpl.parseGradient(GRADIENT));
+    }
+
+    @Benchmark
+    public CoverGradient parseGradient() {
+        return CoverImageGeneratorImpl.parseGradient(GRADIENT);
+    }
+
+    @Benchmark
+    public List<CoverGradient.Stop> parseStops() {
+        return CoverImageGeneratorImpl.parseStops(STOPS);
+    }
+
+    @Benchmark
+    public int generateSvg() {
+        var buffer = template.render(CoverImageGeneratorImpl.svgValues(design),
+            DefaultDataBufferFactory.sharedInstance);
+        try {
+            return buffer.readableByteCount();
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
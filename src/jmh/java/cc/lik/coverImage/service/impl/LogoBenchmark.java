@@ -0,0 +1,92 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.ImageWorkers;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Logo 缩放与 data URI 编码
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogoBenchmark {
+    /**
+     * 原图边长：常见的站点图标到高分辨率 Logo
+     */
+    @Param({"256", "1024", "2048"})
+    public int size;
+
+    @Param({"png", "jpg"})
+    public String format;
+
+    private final ImageWorkers imageWorkers = new ImageWorkers();
+    private BufferedImage source;
+    private BufferedImage resized;
+
+    @Setup
+    public void setUp() {
+        source = syntheticLogo(size, "png".equals(format));
+        resized = LogoServiceImpl.resizeImage(source, imageWorkers.rowPool());
+    }
+
+    @TearDown
+    public void tearDown() {
+        imageWorkers.destroy();
+    }
+
+    @Benchmark
+    public BufferedImage resizeImage() {
+        return LogoServiceImpl.resizeImage(source, imageWorkers.rowPool());
+    }
+
+    @Benchmark
+    public String encodeToBase64() throws IOException {
+        return LogoServiceImpl.encodeToBase64(resized, format);
+    }
+
+    @Benchmark
+    public String resizeAndEncode() throws IOException {
+        return LogoServiceImpl.encodeToBase64(
+            LogoServiceImpl.resizeImage(source, imageWorkers.rowPool()), format);
+    }
+
+    /**
+     * 渐变加噪点，避免纯色图片让编码器走捷径
+     */
+    static BufferedImage syntheticLogo(int size, boolean alpha) {
+        var image = new BufferedImage(size, size,
+            alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(0x4f, 0x8c, 0xff), size, size,
+            new Color(0xff, 0x7a, 0x59)));
+        g.fillOval(0, 0, size, size);
+        g.dispose();
+        var random = new Random(42);
+        for (int i = 0; i < size * size / 8; i++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            image.setRGB(x, y, image.getRGB(x, y) ^ (random.nextInt() & 0x000f0f0f));
+        }
+        return image;
+    }
+}
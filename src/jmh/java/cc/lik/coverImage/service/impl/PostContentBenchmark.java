@@ -0,0 +1,127 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.model.ImageType;
+import cc.lik.coverImage.util.ImageCandidateScanner;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 文章内容相关的解析：首图提取、上传内容类型识别、尺寸换算
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostContentBenchmark {
+    /**
+     * 文章正文长度（字符），第一张图片位于正文约 80% 处
+     */
+    @Param({"5000", "50000", "500000"})
+    public int length;
+
+    private String markdown;
+    private String html;
+    private String dataUrl;
+
+    @Setup
+    public void setUp() {
+        markdown = markdownPost(length);
+        html = htmlPost(length);
+        byte[] image = new byte[1024 * 1024];
+        new Random(42).nextBytes(image);
+        dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(image);
+    }
+
+    @Benchmark
+    public Optional<String> firstMarkdownImage() {
+        return ImageCandidateScanner.first(markdown, true);
+    }
+
+    @Benchmark
+    public Optional<String> firstHtmlImage() {
+        return ImageCandidateScanner.first(html, false);
+    }
+
+    @Benchmark
+    public List<String> markdownCandidates() {
+        return ImageCandidateScanner.all(markdown, true, 10);
+    }
+
+    @Benchmark
+    public ImageType parseDataUrl() {
+        return ImageServiceImpl.parseImageType(dataUrl);
+    }
+
+    @Benchmark
+    public ImageType parseUrl() {
+        return ImageServiceImpl.parseImageType("https://example.com/upload/cover.png");
+    }
+
+    @Benchmark
+    public String convertSizeToAspectRatio() {
+        return CodeSphereImageGenerator.convertSizeToAspectRatio("2560x1440");
+    }
+
+    private static String markdownPost(int length) {
+        var sb = new StringBuilder(length + 512);
+        int imageAt = length * 4 / 5;
+        int i = 0;
+        while (sb.length() < length) {
+            if (sb.length() >= imageAt && imageAt > 0) {
+                sb.append("![封面](https://example.com/upload/2026/cover-").append(i)
+                    .append(".png \"cover\")\n\n");
+                imageAt = 0;
+            }
+            switch (i++ % 4) {
+                case 0 -> sb.append("## 第 ").append(i).append(" 节\n\n");
+                case 1 -> sb.append("```java\nString s = \"![not](image.png)\";\n```\n\n");
+                case 2 -> sb.append("正文段落，包含 `行内代码` 与 [链接](https://example.com/")
+                    .append(i).append(")。").append("这是一段用于填充长度的中文内容。".repeat(4))
+                    .append("\n\n");
+                default -> sb.append("- 列表项 **加粗** _斜体_\n- 列表项\n\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String htmlPost(int length) {
+        var sb = new StringBuilder(length + 512);
+        int imageAt = length * 4 / 5;
+        int i = 0;
+        while (sb.length() < length) {
+            if (sb.length() >= imageAt && imageAt > 0) {
+                sb.append("<p><img class=\"lazy\" src=\"data:image/gif;base64,R0lGODlhAQABAAAAACw=\" ")
+                    .append("data-src=\"https://example.com/upload/2026/cover-").append(i)
+                    .append(".png\" srcset=\"https://example.com/a-400.png 400w, ")
+                    .append("https://example.com/a-1280.png 1280w\" alt=\"封面\"></p>\n");
+                imageAt = 0;
+            }
+            switch (i++ % 3) {
+                case 0 -> sb.append("<h2 id=\"s").append(i).append("\">第 ").append(i)
+                    .append(" 节</h2>\n");
+                case 1 -> sb.append("<pre><code class=\"language-java\">String s = &quot;x&quot;;")
+                    .append("</code></pre>\n");
+                default -> sb.append("<p>正文段落，包含 <code>行内代码</code> 与 <a href=\"https://example.com/")
+                    .append(i).append("\">链接</a>。")
+                    .append("这是一段用于填充长度的中文内容。".repeat(4)).append("</p>\n");
+            }
+        }
+        return sb.toString();
+    }
+}
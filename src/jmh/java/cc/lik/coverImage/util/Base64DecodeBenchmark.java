@@ -0,0 +1,88 @@
+package cc.lik.coverImage.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+/**
+ * base64 图片的解码路径：Gemini 响应的流式解码与 data URL 上传的整体解码
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Base64DecodeBenchmark {
+    /**
+     * 解码后的图片大小（KB），Gemini 2K 输出通常为 1–4MB
+     */
+    @Param({"256", "2048", "8192"})
+    public int imageKb;
+
+    private static final int NETWORK_CHUNK = 16 * 1024;
+
+    private final DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+    private List<byte[]> responseChunks;
+    private String dataUrl;
+
+    @Setup
+    public void setUp() {
+        byte[] image = new byte[imageKb * 1024];
+        new Random(42).nextBytes(image);
+        String base64 = Base64.getEncoder().encodeToString(image);
+        byte[] response = ("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"这是生成的封面\"},"
+            + "{\"inlineData\":{\"mimeType\":\"image/png\",\"data\":\"" + base64 + "\"}}]},"
+            + "\"finishReason\":\"STOP\"}],\"usageMetadata\":{\"totalTokenCount\":1290}}")
+            .getBytes(StandardCharsets.UTF_8);
+        // 按网络读取的粒度切分，模拟 WebClient 交付的 DataBuffer
+        responseChunks = new ArrayList<>();
+        for (int i = 0; i < response.length; i += NETWORK_CHUNK) {
+            int end = Math.min(response.length, i + NETWORK_CHUNK);
+            byte[] chunk = new byte[end - i];
+            System.arraycopy(response, i, chunk, 0, chunk.length);
+            responseChunks.add(chunk);
+        }
+        dataUrl = "data:image/png;base64," + base64;
+    }
+
+    @Benchmark
+    public long streamingFieldDecode() {
+        Flux<DataBuffer> body = Flux.fromIterable(responseChunks).map(factory::wrap);
+        return Base64FieldDecoder.decode(body, "inlineData", "data", factory)
+            .map(buffer -> {
+                int size = buffer.readableByteCount();
+                DataBufferUtils.release(buffer);
+                return (long) size;
+            })
+            .reduce(0L, Long::sum)
+            .block();
+    }
+
+    /**
+     * 与 ImageServiceImpl 上传 data URL 的方式一致：整体切分后一次解码
+     */
+    @Benchmark
+    public int dataUrlDecode() {
+        var parts = dataUrl.split(",");
+        return Base64.getDecoder().decode(parts[1]).length;
+    }
+}
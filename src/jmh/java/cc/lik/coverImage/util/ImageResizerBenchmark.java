@@ -0,0 +1,84 @@
+package cc.lik.coverImage.util;
+
+import cc.lik.coverImage.config.ImageWorkers;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 面积平均缩放与单次双线性 drawImage 的对比：4K 壁纸与 AI 输出缩到衍生图宽度
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageResizerBenchmark {
+    @Param({"2560x1440", "3840x2160"})
+    public String source;
+
+    @Param({"400", "1280"})
+    public int targetWidth;
+
+    private final ImageWorkers imageWorkers = new ImageWorkers();
+    private BufferedImage image;
+    private int targetHeight;
+
+    @Setup
+    public void setUp() {
+        String[] size = source.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(0x4f, 0x8c, 0xff), width, height,
+            new Color(0xff, 0x7a, 0x59)));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        var random = new Random(42);
+        for (int i = 0; i < width * height / 16; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            image.setRGB(x, y, random.nextInt());
+        }
+        targetHeight = Math.round(height * (float) targetWidth / width);
+    }
+
+    @TearDown
+    public void tearDown() {
+        imageWorkers.destroy();
+    }
+
+    @Benchmark
+    public BufferedImage areaAverage() {
+        return ImageResizer.resize(image, targetWidth, targetHeight, false,
+            imageWorkers.rowPool());
+    }
+
+    @Benchmark
+    public BufferedImage bilinearDrawImage() {
+        var result = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        var g = result.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        g.dispose();
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+package cc.lik.coverImage.load;
+
+import cc.lik.coverImage.dto.CoverGenerationResponse;
+import cc.lik.coverImage.model.GenerationJob;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 封面生成流水线压测
+ *
+ * <p>通过 {@code ./gradlew loadTest} 运行，参数以系统属性传入：</p>
+ * <ul>
+ *     <li>{@code load.scenarios}：逗号分隔的场景，默认全部，见 {@link Scenario}</li>
+ *     <li>{@code load.requests}、{@code load.warmup}、{@code load.concurrency}：请求数与并发</li>
+ *     <li>{@code load.latencyMs}、{@code load.jitterMs}、{@code load.errorRate}、{@code load.imageKb}：上游行为</li>
+ *     <li>{@code load.prefetch}：随机图预取数量，默认 0，即每次都完整走一遍流水线</li>
+ * </ul>
+ */
+public final class CoverLoadTest {
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+
+    /**
+     * 压测场景
+     */
+    enum Scenario {
+        RANDOM("randomImg", "volcengine", null),
+        FIRST_POST_IMAGE("firstPostImg", "volcengine", null),
+        CUSTOMIZE("customizeImg", "volcengine", null),
+        AI_VOLCENGINE("aiGenerated", "volcengine", null),
+        AI_DOUBAO("aiGenerated", "codesphere", "doubao-seedream-4-0"),
+        AI_GEMINI("aiGenerated", "codesphere", "gemini-2.5-flash-image"),
+        ENDPOINT_GENERATE("randomImg", "volcengine", null),
+        ENDPOINT_UPLOAD(null, "volcengine", null);
+
+        private final String strategy;
+        private final String aiProvider;
+        private final String model;
+
+        Scenario(String strategy, String aiProvider, String model) {
+            this.strategy = strategy;
+            this.aiProvider = aiProvider;
+            this.model = model;
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int requests = Integer.getInteger("load.requests", 500);
+        int warmup = Integer.getInteger("load.warmup", 50);
+        int concurrency = Integer.getInteger("load.concurrency", 32);
+        int prefetch = Integer.getInteger("load.prefetch", 0);
+        var profile = new MockUpstreamServer.Profile(
+            Duration.ofMillis(Long.getLong("load.latencyMs", 50)),
+            Duration.ofMillis(Long.getLong("load.jitterMs", 20)),
+            Double.parseDouble(System.getProperty("load.errorRate", "0")),
+            Integer.getInteger("load.imageKb", 512));
+        List<Scenario> scenarios = scenarios(System.getProperty("load.scenarios", ""));
+
+        System.out.printf("上游: 延迟 %d+%dms, 错误率 %.2f, 图片 %dKB; 请求 %d (预热 %d), 并发 %d%n",
+            profile.latency().toMillis(), profile.jitter().toMillis(), profile.errorRate(),
+            profile.imageKb(), requests, warmup, concurrency);
+
+        var results = new ArrayList<LoadRunner.Result>();
+        try (var upstream = new MockUpstreamServer(profile)) {
+            for (Scenario scenario : scenarios) {
+                var stubs = CoverPipelineHarness.stubs(upstream.baseUrl(), scenario.aiProvider,
+                    scenario.model, concurrency, prefetch);
+                try (var harness = new CoverPipelineHarness(stubs)) {
+                    long upstreamBefore = upstream.requests();
+                    var result = LoadRunner.run(scenario.label(), warmup, requests, concurrency,
+                        call(scenario, harness, upstream));
+                    results.add(result);
+                    System.out.println();
+                    System.out.println(LoadRunner.Result.header());
+                    System.out.println(result.row());
+                    System.out.printf("上游请求 %d, 附件上传 %d (%d MB), 文章更新 %d%n",
+                        upstream.requests() - upstreamBefore, stubs.uploads(),
+                        stubs.uploadedBytes() / (1024 * 1024), stubs.postUpdates());
+                    printStages(harness);
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(LoadRunner.Result.header());
+        results.forEach(result -> System.out.println(result.row()));
+        // 非零错误数时以失败退出，便于在流水线中作为容量门禁
+        if (profile.errorRate() == 0 && results.stream().anyMatch(result -> result.errors() > 0)) {
+            System.exit(1);
+        }
+    }
+
+    private static IntFunction<Mono<?>> call(Scenario scenario, CoverPipelineHarness harness,
+        MockUpstreamServer upstream) {
+        return switch (scenario) {
+            case ENDPOINT_GENERATE -> {
+                var client = harness.endpointClient();
+                yield i -> generateAndWait(client, "load-" + i, scenario.strategy);
+            }
+            case ENDPOINT_UPLOAD -> {
+                var client = harness.endpointClient();
+                byte[] image = MockUpstreamServer.jpeg(upstream.imageBytes() / 1024);
+                yield i -> Mono.fromCallable(() -> client.post()
+                    .uri("/upload/{postName}", "load-" + i)
+                    .contentType(MediaType.IMAGE_JPEG)
+                    .bodyValue(image)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .returnResult(String.class)
+                    .getResponseBody()
+                    .blockLast())
+                    .subscribeOn(Schedulers.boundedElastic());
+            }
+            default -> {
+                var imgService = harness.imgService();
+                yield i -> imgService.coverImg(HaloStubs.post("load-" + i, scenario.strategy));
+            }
+        };
+    }
+
+    /**
+     * 提交后台任务并轮询状态，直到任务结束
+     */
+    private static Mono<?> generateAndWait(WebTestClient client, String postName, String type) {
+        Function<String, Mono<CoverGenerationResponse>> request = method -> Mono.fromCallable(() ->
+            ("POST".equals(method)
+                ? client.post().uri("/generate/{postName}?type={type}", postName, type)
+                : client.get().uri("/status/{postName}", postName))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CoverGenerationResponse.class)
+                .returnResult()
+                .getResponseBody())
+            // WebTestClient 的断言是阻塞的，不能占用 Reactor 的事件循环线程
+            .subscribeOn(Schedulers.boundedElastic()));
+        return request.apply("POST")
+            .then(Mono.defer(() -> request.apply("GET"))
+                .filter(response -> !GenerationJob.STATUS_GENERATING.equals(response.getStatus()))
+                .repeatWhenEmpty(repeat -> repeat.delayElements(POLL_INTERVAL)))
+            .flatMap(response -> GenerationJob.STATUS_SUCCESS.equals(response.getStatus())
+                ? Mono.just(response)
+                : Mono.error(new IllegalStateException(response.getMessage())));
+    }
+
+    /**
+     * 按阶段输出平均耗时，定位时间花在哪里
+     */
+    private static void printStages(CoverPipelineHarness harness) {
+        harness.meterRegistry().find("cover.stage").timers().stream()
+            .filter(timer -> "success".equals(timer.getId().getTag("outcome")))
+            .sorted((a, b) -> Double.compare(b.totalTime(TimeUnit.MILLISECONDS),
+                a.totalTime(TimeUnit.MILLISECONDS)))
+            .forEach(timer -> System.out.printf("  %-14s %-14s 次数 %6d, 平均 %8.2fms, 最大 %8.2fms%n",
+                timer.getId().getTag("stage"), timer.getId().getTag("strategy"), timer.count(),
+                timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS)));
+    }
+
+    private static List<Scenario> scenarios(String names) {
+        if (names.isBlank()) {
+            return List.of(Scenario.values());
+        }
+        return Arrays.stream(names.split(","))
+            .map(String::trim)
+            .map(name -> Scenario.valueOf(name.toUpperCase(Locale.ROOT)))
+            .toList();
+    }
+}
@@ -0,0 +1,104 @@
+package cc.lik.coverImage.load;
+
+import cc.lik.coverImage.endpoint.CoverImageEndpoint;
+import cc.lik.coverImage.service.ImgService;
+import cc.lik.coverImage.service.SettingConfigGetter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import run.halo.app.content.PostContentService;
+import run.halo.app.core.extension.service.AttachmentService;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.infra.ExternalUrlSupplier;
+import run.halo.app.plugin.ReactiveSettingFetcher;
+
+/**
+ * 以插件真实的服务实现组装封面生成流水线，Halo 服务由 {@link HaloStubs} 替代，
+ * 所有上游指向 {@link MockUpstreamServer}
+ */
+final class CoverPipelineHarness implements AutoCloseable {
+    private static final String API_PREFIX = "/apis/coverimage.lik.cc/v1alpha1";
+
+    private final AnnotationConfigApplicationContext context;
+    private final HaloStubs stubs;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    CoverPipelineHarness(HaloStubs stubs) {
+        this.stubs = stubs;
+        this.context = new AnnotationConfigApplicationContext();
+        context.registerBean(ReactiveExtensionClient.class, stubs::extensionClient);
+        context.registerBean(AttachmentService.class, stubs::attachmentService);
+        context.registerBean(PostContentService.class, stubs::postContentService);
+        context.registerBean(ReactiveSettingFetcher.class, stubs::settingFetcher);
+        context.registerBean(ExternalUrlSupplier.class, stubs::externalUrlSupplier);
+        context.registerBean(MeterRegistry.class, () -> meterRegistry);
+        context.scan("cc.lik.coverImage.config", "cc.lik.coverImage.service",
+            "cc.lik.coverImage.endpoint");
+        context.refresh();
+    }
+
+    /**
+     * 压测使用的设置：随机图只使用替身图源，AI 服务商的限流放开到不影响压测
+     */
+    static HaloStubs stubs(String baseUrl, String aiProvider, String model, int concurrency,
+        int prefetchSize) {
+        var basic = new SettingConfigGetter.BasicConfig();
+        basic.setFilePolicy("default-policy");
+        basic.setRandomType("mock");
+        basic.setRandomPrefetchSize(prefetchSize);
+        var source = new SettingConfigGetter.RandomSource();
+        source.setName("mock");
+        source.setType("mock");
+        source.setUrl(baseUrl + "/random");
+        source.setImagePointer("/imgurl");
+        source.setSuccessPointer("/code");
+        source.setSuccessValue("200");
+        basic.setRandomSources(List.of(source));
+
+        var ai = new SettingConfigGetter.AIConfig();
+        ai.setAiProvider(aiProvider);
+        ai.setVolcApiBaseUrl(baseUrl + "/api/v3");
+        ai.setVolcApiKey("load-test");
+        ai.setApiBaseUrl(baseUrl);
+        ai.setApiKey("load-test");
+        ai.setModel(model);
+        ai.setVolcRatePerMinute(1_000_000d);
+        ai.setVolcBurst(concurrency);
+        ai.setVolcMaxConcurrent(concurrency);
+        ai.setCodesphereRatePerMinute(1_000_000d);
+        ai.setCodesphereBurst(concurrency);
+        ai.setCodesphereMaxConcurrent(concurrency);
+        return new HaloStubs(baseUrl, basic, ai);
+    }
+
+    ImgService imgService() {
+        return context.getBean(ImgService.class);
+    }
+
+    WebTestClient endpointClient() {
+        var endpoint = context.getBean(CoverImageEndpoint.class);
+        return WebTestClient.bindToRouterFunction(
+                RouterFunctions.nest(RequestPredicates.path(API_PREFIX), endpoint.endpoint()))
+            .configureClient()
+            .baseUrl(API_PREFIX)
+            .build();
+    }
+
+    HaloStubs stubs() {
+        return stubs;
+    }
+
+    MeterRegistry meterRegistry() {
+        return meterRegistry;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        meterRegistry.close();
+    }
+}
@@ -0,0 +1,200 @@
+package cc.lik.coverImage.load;
+
+import static org.mockito.Mockito.mock;
+
+import cc.lik.coverImage.service.SettingConfigGetter;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.multipart.FilePart;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.app.content.ContentWrapper;
+import run.halo.app.content.PostContentService;
+import run.halo.app.core.extension.User;
+import run.halo.app.core.extension.attachment.Attachment;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.core.extension.service.AttachmentService;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.infra.ExternalUrlSupplier;
+import run.halo.app.plugin.ReactiveSettingFetcher;
+
+/**
+ * 压测用的 Halo 服务替身
+ *
+ * <p>替身按方法名应答，不依赖具体的重载签名：文章与用户按名称即时构造，附件上传读完内容后
+ * 返回固定地址，文章更新直接回显。设置取自构造时传入的快照。</p>
+ */
+final class HaloStubs {
+    static final String OWNER = "admin";
+
+    private final String upstreamBaseUrl;
+    private final SettingConfigGetter.BasicConfig basicConfig;
+    private final SettingConfigGetter.AIConfig aiConfig;
+    private final AtomicLong uploads = new AtomicLong();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong postUpdates = new AtomicLong();
+
+    HaloStubs(String upstreamBaseUrl, SettingConfigGetter.BasicConfig basicConfig,
+        SettingConfigGetter.AIConfig aiConfig) {
+        this.upstreamBaseUrl = upstreamBaseUrl;
+        this.basicConfig = basicConfig;
+        this.aiConfig = aiConfig;
+    }
+
+    ReactiveExtensionClient extensionClient() {
+        return mock(ReactiveExtensionClient.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "fetch", "get" -> {
+                Object type = invocation.getArgument(0);
+                String name = invocation.getArgument(1);
+                if (type == Post.class) {
+                    yield Mono.just(post(name, "randomImg"));
+                }
+                if (type == User.class) {
+                    yield Mono.just(user(name));
+                }
+                yield Mono.empty();
+            }
+            case "update", "create" -> {
+                if (invocation.getArgument(0) instanceof Post) {
+                    postUpdates.incrementAndGet();
+                }
+                yield Mono.just(invocation.getArgument(0));
+            }
+            default -> empty(invocation);
+        });
+    }
+
+    AttachmentService attachmentService() {
+        return mock(AttachmentService.class, invocation -> {
+            if (!"upload".equals(invocation.getMethod().getName())) {
+                return empty(invocation);
+            }
+            Flux<DataBuffer> content = Flux.empty();
+            for (Object argument : invocation.getArguments()) {
+                if (argument instanceof FilePart filePart) {
+                    content = filePart.content();
+                } else if (argument instanceof Flux<?> flux) {
+                    content = flux.cast(DataBuffer.class);
+                }
+            }
+            return content
+                .map(buffer -> {
+                    int size = buffer.readableByteCount();
+                    DataBufferUtils.release(buffer);
+                    return (long) size;
+                })
+                .reduce(0L, Long::sum)
+                .map(size -> {
+                    long id = uploads.incrementAndGet();
+                    uploadedBytes.addAndGet(size);
+                    var attachment = new Attachment();
+                    var metadata = new Metadata();
+                    metadata.setName("attachment-" + id);
+                    attachment.setMetadata(metadata);
+                    var status = new Attachment.AttachmentStatus();
+                    status.setPermalink("/upload/load-" + id + ".jpg");
+                    attachment.setStatus(status);
+                    return attachment;
+                });
+        });
+    }
+
+    PostContentService postContentService() {
+        // 首图位于较长的正文之后，与真实文章的扫描开销相当
+        String markdown = "## 正文\n\n" + "这是一段用于压测的文章内容。".repeat(400)
+            + "\n\n![封面](" + upstreamBaseUrl + "/images/first.jpg)\n";
+        return mock(PostContentService.class, invocation -> switch (invocation.getMethod().getName()) {
+            case "getHeadContent", "getReleaseContent" -> Mono.just(ContentWrapper.builder()
+                .snapshotName("snapshot")
+                .raw(markdown)
+                .content(markdown)
+                .rawType("markdown")
+                .build());
+            default -> empty(invocation);
+        });
+    }
+
+    ReactiveSettingFetcher settingFetcher() {
+        return mock(ReactiveSettingFetcher.class, invocation -> {
+            if ("fetch".equals(invocation.getMethod().getName())
+                && invocation.getArguments().length == 2
+                && invocation.getArgument(1) instanceof Class<?>) {
+                String group = invocation.getArgument(0);
+                return Mono.justOrEmpty(switch (group) {
+                    case SettingConfigGetter.BasicConfig.GROUP -> basicConfig;
+                    case SettingConfigGetter.AIConfig.GROUP -> aiConfig;
+                    default -> null;
+                });
+            }
+            return empty(invocation);
+        });
+    }
+
+    ExternalUrlSupplier externalUrlSupplier() {
+        return mock(ExternalUrlSupplier.class, invocation -> {
+            Class<?> type = invocation.getMethod().getReturnType();
+            if (type == URL.class) {
+                return URI.create(upstreamBaseUrl).toURL();
+            }
+            if (type == URI.class) {
+                return URI.create(upstreamBaseUrl);
+            }
+            return null;
+        });
+    }
+
+    static Post post(String name, String strategy) {
+        var post = new Post();
+        var metadata = new Metadata();
+        metadata.setName(name);
+        Map<String, String> annotations = new HashMap<>();
+        annotations.put("coverImgType", strategy);
+        annotations.put("coverImgTitle1", "Halo");
+        annotations.put("coverImgTitle2", "压测");
+        metadata.setAnnotations(annotations);
+        post.setMetadata(metadata);
+        var spec = new Post.PostSpec();
+        spec.setTitle("压测文章 " + name);
+        spec.setOwner(OWNER);
+        post.setSpec(spec);
+        return post;
+    }
+
+    private static User user(String name) {
+        var user = new User();
+        var metadata = new Metadata();
+        metadata.setName(name);
+        user.setMetadata(metadata);
+        return user;
+    }
+
+    private static Object empty(InvocationOnMock invocation) {
+        Class<?> type = invocation.getMethod().getReturnType();
+        if (type == Mono.class) {
+            return Mono.empty();
+        }
+        if (type == Flux.class) {
+            return Flux.empty();
+        }
+        return null;
+    }
+
+    long uploads() {
+        return uploads.get();
+    }
+
+    long uploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    long postUpdates() {
+        return postUpdates.get();
+    }
+}
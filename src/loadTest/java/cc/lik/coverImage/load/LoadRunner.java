@@ -0,0 +1,114 @@
+package cc.lik.coverImage.load;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 以固定并发执行一批请求，统计延迟分布、吞吐与堆内存
+ */
+final class LoadRunner {
+    private LoadRunner() {
+    }
+
+    /**
+     * @param warmup 预热请求数，不计入结果
+     * @param requests 计入结果的请求数
+     * @param concurrency 同时进行的请求数
+     * @param call 第 i 个请求
+     */
+    static Result run(String name, int warmup, int requests, int concurrency,
+        IntFunction<Mono<?>> call) {
+        drive(warmup, concurrency, i -> call.apply(-1 - i), new long[warmup], new LongAdder());
+        System.gc();
+
+        var memory = ManagementFactory.getMemoryMXBean();
+        var peakHeap = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+        var sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(
+            () -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+            0, 50, TimeUnit.MILLISECONDS);
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+
+        var latencies = new long[requests];
+        var errors = new LongAdder();
+        long start = System.nanoTime();
+        try {
+            drive(requests, concurrency, call, latencies, errors);
+        } finally {
+            sampler.shutdownNow();
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        Arrays.sort(latencies);
+        return new Result(name, requests, concurrency, errors.sum(), elapsed,
+            percentile(latencies, 0.50), percentile(latencies, 0.99),
+            latencies.length == 0 ? 0 : latencies[latencies.length - 1],
+            peakHeap.get(), gcCount() - gcCountBefore, gcTime() - gcTimeBefore);
+    }
+
+    private static void drive(int requests, int concurrency, IntFunction<Mono<?>> call,
+        long[] latencies, LongAdder errors) {
+        Flux.range(0, requests)
+            .flatMap(i -> Mono.defer(() -> {
+                long start = System.nanoTime();
+                return call.apply(i)
+                    .then()
+                    .onErrorResume(e -> {
+                        errors.increment();
+                        return Mono.empty();
+                    })
+                    .doFinally(signal -> latencies[i] = System.nanoTime() - start);
+            }), concurrency)
+            .blockLast();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    /**
+     * 单个场景的结果，延迟单位为纳秒
+     */
+    record Result(String name, int requests, int concurrency, long errors, Duration elapsed,
+                  long p50Nanos, long p99Nanos, long maxNanos, long peakHeapBytes, long gcCount,
+                  long gcMillis) {
+        double coversPerSecond() {
+            return (requests - errors) / (elapsed.toNanos() / 1e9);
+        }
+
+        static String header() {
+            return String.format("%-18s %6s %5s %7s %10s %10s %10s %10s %9s %8s",
+                "scenario", "reqs", "conc", "errors", "covers/s", "p50(ms)", "p99(ms)", "max(ms)",
+                "heap(MB)", "gc(ms)");
+        }
+
+        String row() {
+            return String.format("%-18s %6d %5d %7d %10.1f %10.1f %10.1f %10.1f %9d %8d",
+                name, requests, concurrency, errors, coversPerSecond(), p50Nanos / 1e6,
+                p99Nanos / 1e6, maxNanos / 1e6, peakHeapBytes / (1024 * 1024), gcMillis);
+        }
+    }
+}
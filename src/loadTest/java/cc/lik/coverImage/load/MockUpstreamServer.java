@@ -0,0 +1,180 @@
+package cc.lik.coverImage.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.imageio.ImageIO;
+
+/**
+ * 进程内的上游替身，模拟随机图 API、火山方舟/豆包 {@code /images/generations}、
+ * Gemini {@code generateContent} 与图片下载
+ *
+ * <ul>
+ *     <li>{@code GET /random}：随机图 JSON，{@code imgurl} 指向本服务的图片</li>
+ *     <li>{@code POST /api/v3/images/generations}：火山方舟</li>
+ *     <li>{@code POST /v1/images/generations}：CodeSphere 豆包</li>
+ *     <li>{@code POST /v1beta/models/{model}:generateContent}：Gemini，图片以 base64 内联</li>
+ *     <li>{@code GET /images/{name}}：JPEG 图片，大小由 {@link Profile#imageKb()} 决定</li>
+ * </ul>
+ */
+public final class MockUpstreamServer implements AutoCloseable {
+    private final Profile profile;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final byte[] image;
+    private final String imageBase64;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    /**
+     * 上游的行为
+     *
+     * @param latency 每个请求的基础延迟
+     * @param jitter 在基础延迟上叠加的随机延迟上限
+     * @param errorRate 返回 503 的比例，0 到 1
+     * @param imageKb 图片大小（KB）
+     */
+    public record Profile(Duration latency, Duration jitter, double errorRate, int imageKb) {
+    }
+
+    public MockUpstreamServer(Profile profile) throws IOException {
+        this.profile = profile;
+        this.image = jpeg(profile.imageKb());
+        this.imageBase64 = Base64.getEncoder().encodeToString(image);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+        server.setExecutor(executor);
+        server.createContext("/random", exchange -> handle(exchange, () -> json(exchange,
+            "{\"code\":200,\"imgurl\":\"" + imageUrl("random") + "\"}")));
+        server.createContext("/api/v3/images/generations", exchange -> handle(exchange,
+            () -> json(exchange, "{\"data\":[{\"url\":\"" + imageUrl("volc") + "\"}]}")));
+        server.createContext("/v1/images/generations", exchange -> handle(exchange,
+            () -> json(exchange, "{\"data\":[{\"url\":\"" + imageUrl("doubao") + "\"}]}")));
+        server.createContext("/v1beta/models/", exchange -> handle(exchange, () -> json(exchange,
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"ok\"},{\"inlineData\":"
+                + "{\"mimeType\":\"image/jpeg\",\"data\":\"" + imageBase64 + "\"}}]},"
+                + "\"finishReason\":\"STOP\"}]}")));
+        server.createContext("/images/", exchange -> handle(exchange, () -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+            exchange.sendResponseHeaders(200, image.length);
+            try (var body = exchange.getResponseBody()) {
+                body.write(image);
+            }
+        }));
+        server.start();
+    }
+
+    /**
+     * 形如 {@code http://127.0.0.1:port}，不带结尾斜杠
+     */
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * 写入图片的字节数，供报告计算吞吐
+     */
+    public int imageBytes() {
+        return image.length;
+    }
+
+    private String imageUrl(String prefix) {
+        return baseUrl() + "/images/" + prefix + "-" + requests.get() + ".jpg";
+    }
+
+    private void handle(HttpExchange exchange, IoAction action) {
+        requests.incrementAndGet();
+        try (exchange) {
+            sleep();
+            if (ThreadLocalRandom.current().nextDouble() < profile.errorRate()) {
+                injectedErrors.incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            action.run();
+        } catch (IOException e) {
+            // 客户端提前断开（如超时或对冲请求被取消）
+        }
+    }
+
+    private void sleep() {
+        long millis = profile.latency().toMillis();
+        long jitter = profile.jitter().toMillis();
+        if (jitter > 0) {
+            millis += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void json(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (var out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * 1280x720 的真实 JPEG，不足目标大小时在 EOI 之后补齐，解码器会忽略尾部数据
+     */
+    static byte[] jpeg(int targetKb) {
+        var bitmap = new BufferedImage(1280, 720, BufferedImage.TYPE_INT_RGB);
+        var g = bitmap.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(0x4f, 0x8c, 0xff), 1280, 720,
+            new Color(0xff, 0x7a, 0x59)));
+        g.fillRect(0, 0, 1280, 720);
+        g.dispose();
+        try {
+            var out = new ByteArrayOutputStream();
+            ImageIO.write(bitmap, "jpg", out);
+            byte[] encoded = out.toByteArray();
+            int target = targetKb * 1024;
+            return encoded.length >= target ? encoded : Arrays.copyOf(encoded, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
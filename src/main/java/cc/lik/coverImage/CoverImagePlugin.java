@@ -1,6 +1,9 @@
 package cc.lik.coverImage;
 
+import cc.lik.coverImage.extension.CoverBackfill;
+import cc.lik.coverImage.extension.CoverJob;
 import org.springframework.stereotype.Component;
+import run.halo.app.extension.SchemeManager;
 import run.halo.app.plugin.BasePlugin;
 import run.halo.app.plugin.PluginContext;
 
@@ -15,17 +18,24 @@ import run.halo.app.plugin.PluginContext;
 @Component
 public class CoverImagePlugin extends BasePlugin {
 
-    public CoverImagePlugin(PluginContext pluginContext) {
+    private final SchemeManager schemeManager;
+
+    public CoverImagePlugin(PluginContext pluginContext, SchemeManager schemeManager) {
         super(pluginContext);
+        this.schemeManager = schemeManager;
     }
 
     @Override
     public void start() {
+        schemeManager.register(CoverJob.class);
+        schemeManager.register(CoverBackfill.class);
         System.out.println("插件启动成功！");
     }
 
     @Override
     public void stop() {
+        schemeManager.unregister(schemeManager.get(CoverJob.class));
+        schemeManager.unregister(schemeManager.get(CoverBackfill.class));
         System.out.println("插件停止！");
     }
 }
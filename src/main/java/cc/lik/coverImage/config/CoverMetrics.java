@@ -0,0 +1,129 @@
+package cc.lik.coverImage.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * 封面图生成各阶段的指标
+ *
+ * <p>指标写入 Halo 的 MeterRegistry（不可用时写入 Micrometer 全局注册表）：</p>
+ * <ul>
+ *     <li>{@code cover.pipeline}：一次封面生成的总耗时，同时计数</li>
+ *     <li>{@code cover.stage}：各阶段耗时，{@code stage} 标签见 {@code STAGE_*} 常量</li>
+ *     <li>{@code cover.download.bytes}、{@code cover.upload.bytes}：下载与上传的字节数</li>
+ * </ul>
+ * <p>策略、服务商与模型标签通过 Reactor Context 从调用方传入，见 {@link #strategy(String)} 与
+ * {@link #route(String, String)}；每次计时附带 {@code outcome}：success、empty、error、cancelled。</p>
+ */
+@Component
+public class CoverMetrics {
+    public static final String STAGE_SETTINGS = "settings";
+    public static final String STAGE_POST_FETCH = "post_fetch";
+    public static final String STAGE_PROMPT_BUILD = "prompt_build";
+    public static final String STAGE_UPSTREAM_CALL = "upstream_call";
+    public static final String STAGE_DOWNLOAD = "download";
+    public static final String STAGE_UPLOAD = "upload";
+    public static final String STAGE_POST_UPDATE = "post_update";
+    public static final String STAGE_DERIVATIVES = "derivatives";
+    public static final String STAGE_TRANSCODE = "transcode";
+
+    private static final String STRATEGY = "cover.strategy";
+    private static final String PROVIDER = "cover.provider";
+    private static final String MODEL = "cover.model";
+    private static final String NONE = "none";
+
+    private final MeterRegistry registry;
+
+    public CoverMetrics(ObjectProvider<MeterRegistry> registryProvider) {
+        this.registry = registryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    /**
+     * 为下游阶段设置策略标签：randomImg、firstPostImg、customizeImg、aiGenerated 等
+     */
+    public static Function<Context, Context> strategy(String strategy) {
+        return context -> context.put(STRATEGY, strategy);
+    }
+
+    /**
+     * 为下游阶段设置服务商与模型标签
+     *
+     * @param model 为空时记为 default
+     */
+    public static Function<Context, Context> route(String provider, String model) {
+        return context -> context.put(PROVIDER, provider)
+            .put(MODEL, model == null ? "default" : model);
+    }
+
+    /**
+     * 记录一次完整的封面生成
+     */
+    public <T> Mono<T> pipeline(Mono<T> source) {
+        return Mono.deferContextual(context -> timed(source, "cover.pipeline", tagsOf(context)));
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     */
+    public <T> Mono<T> stage(String stage, Mono<T> source) {
+        return Mono.deferContextual(
+            context -> timed(source, "cover.stage", tagsOf(context).and("stage", stage)));
+    }
+
+    /**
+     * 与 {@link Mono#transform} 一起使用的 {@link #stage(String, Mono)}
+     */
+    public <T> Function<Mono<T>, Mono<T>> stage(String stage) {
+        return source -> stage(stage, source);
+    }
+
+    public void downloaded(ContextView context, long bytes) {
+        bytes("cover.download.bytes", context, bytes);
+    }
+
+    public void uploaded(ContextView context, long bytes) {
+        bytes("cover.upload.bytes", context, bytes);
+    }
+
+    private void bytes(String name, ContextView context, long bytes) {
+        Counter.builder(name)
+            .baseUnit("bytes")
+            .tags(tagsOf(context))
+            .register(registry)
+            .increment(bytes);
+    }
+
+    private <T> Mono<T> timed(Mono<T> source, String name, Tags tags) {
+        var sample = Timer.start(registry);
+        var stopped = new AtomicBoolean();
+        Consumer<String> stop = outcome -> {
+            if (stopped.compareAndSet(false, true)) {
+                sample.stop(Timer.builder(name)
+                    .tags(tags.and("outcome", outcome))
+                    .register(registry));
+            }
+        };
+        return source
+            .doOnSuccess(value -> stop.accept(value == null ? "empty" : "success"))
+            .doOnError(e -> stop.accept("error"))
+            .doOnCancel(() -> stop.accept("cancelled"));
+    }
+
+    private static Tags tagsOf(ContextView context) {
+        return Tags.of(
+            "strategy", context.getOrDefault(STRATEGY, NONE),
+            "provider", context.getOrDefault(PROVIDER, NONE),
+            "model", context.getOrDefault(MODEL, NONE));
+    }
+}
@@ -0,0 +1,47 @@
+package cc.lik.coverImage.config;
+
+import java.util.concurrent.ForkJoinPool;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 图片解码、缩放、编码与栅格化共用的线程池
+ *
+ * <p>这些任务都是纯 CPU 计算，多个服务各建一个线程池只会让线程数翻倍，互相抢占 CPU。
+ * {@link #scheduler()} 执行单张图片的处理；{@link #rowPool()} 供
+ * {@link cc.lik.coverImage.util.ImageResizer} 把一次大图缩放按行拆开并行计算。
+ * 缩放期间调度器线程阻塞等待行任务完成，两个池的线程数合计与处理器核数一致。</p>
+ */
+@Component
+public class ImageWorkers implements DisposableBean {
+    private static final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private static final int SCHEDULER_THREADS = Math.max(2, (PROCESSORS + 1) / 2);
+    private static final int ROW_THREADS = Math.max(1, PROCESSORS - SCHEDULER_THREADS);
+
+    private final Scheduler scheduler = Schedulers.newParallel("cover-image", SCHEDULER_THREADS);
+    /**
+     * 空闲的工作线程会自行退出
+     */
+    private final ForkJoinPool rowPool = new ForkJoinPool(ROW_THREADS, pool -> {
+        var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("cover-resize-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+
+    public Scheduler scheduler() {
+        return scheduler;
+    }
+
+    public ForkJoinPool rowPool() {
+        return rowPool;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+        rowPool.shutdownNow();
+    }
+}
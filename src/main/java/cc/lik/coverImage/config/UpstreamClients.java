@@ -0,0 +1,105 @@
+package cc.lik.coverImage.config;
+
+import io.netty.channel.ChannelOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * 按上游划分的长连接 WebClient
+ *
+ * <p>随机图 API、各 AI 服务商与任意图片下载分别使用独立的连接池，互不抢占连接，
+ * 并复用已建立的 TLS 连接。连接池指标以 {@code reactor.netty.connection.provider.*}
+ * 导出，池名称即下方的 {@code cover-*}。</p>
+ */
+@Slf4j
+@Component
+public class UpstreamClients implements DisposableBean {
+    private final WebClient.Builder webClientBuilder;
+    private final List<ConnectionProvider> providers = new ArrayList<>();
+    private final Map<String, WebClient> aiClients = new ConcurrentHashMap<>();
+
+    private final WebClient randomImage;
+    private final WebClient download;
+
+    public UpstreamClients(WebClient.Builder webClientBuilder) {
+        this.webClientBuilder = webClientBuilder;
+        // 随机图 API 只有少数几个固定主机，响应是很小的 JSON
+        this.randomImage = create(new PoolSpec("cover-random", 16, 64,
+            Duration.ofSeconds(10), Duration.ofSeconds(15)));
+        // 图片下载的主机不固定，连接数放宽，空闲连接尽快回收
+        this.download = create(new PoolSpec("cover-download", 64, 256,
+            Duration.ofSeconds(30), Duration.ofSeconds(60)));
+    }
+
+    /**
+     * 随机图 API 客户端
+     */
+    public WebClient randomImage() {
+        return randomImage;
+    }
+
+    /**
+     * 任意图片下载客户端（外链转存、Logo 等）
+     */
+    public WebClient download() {
+        return download;
+    }
+
+    /**
+     * AI 服务商客户端，每个服务商一个连接池
+     *
+     * @param provider 服务商标识，见 {@link cc.lik.coverImage.service.AIImageGenerator#supportAiProvider()}
+     */
+    public WebClient aiProvider(String provider) {
+        // 生成图片的请求耗时长、并发低，保持少量长连接即可
+        return aiClients.computeIfAbsent(provider, name -> create(new PoolSpec("cover-ai-" + name,
+            8, 32, Duration.ofMinutes(2), Duration.ofSeconds(180))));
+    }
+
+    private synchronized WebClient create(PoolSpec spec) {
+        var provider = ConnectionProvider.builder(spec.name())
+            .maxConnections(spec.maxConnections())
+            .pendingAcquireMaxCount(spec.pendingAcquireMaxCount())
+            .pendingAcquireTimeout(Duration.ofSeconds(30))
+            .maxIdleTime(spec.maxIdleTime())
+            .maxLifeTime(Duration.ofMinutes(10))
+            .evictInBackground(Duration.ofSeconds(30))
+            .metrics(true)
+            .build();
+        providers.add(provider);
+
+        // 通过 ALPN 协商，支持 HTTP/2 的上游自动使用多路复用
+        var httpClient = HttpClient.create(provider)
+            .protocol(HttpProtocol.HTTP11, HttpProtocol.H2)
+            .responseTimeout(spec.responseTimeout())
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 30000)
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .compress(true);
+        log.debug("创建上游连接池: {}", spec);
+        return webClientBuilder.clone()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .build();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        providers.forEach(ConnectionProvider::dispose);
+        providers.clear();
+        aiClients.clear();
+    }
+
+    private record PoolSpec(String name, int maxConnections, int pendingAcquireMaxCount,
+                            Duration maxIdleTime, Duration responseTimeout) {
+    }
+}
@@ -11,14 +11,16 @@ public class ImageConstants {
         "image/png", ".png",
         "image/gif", ".gif",
         "image/svg+xml", ".svg",
-        "image/jpeg", ".jpg"
+        "image/jpeg", ".jpg",
+        "image/webp", ".webp"
     );
     
     public static final Map<String, MediaType> EXTENSION_TO_MEDIA_TYPE = Map.of(
         ".png", MediaType.IMAGE_PNG,
         ".gif", MediaType.IMAGE_GIF,
         ".svg", MediaType.parseMediaType("image/svg+xml"),
-        ".jpg", MediaType.IMAGE_JPEG
+        ".jpg", MediaType.IMAGE_JPEG,
+        ".webp", MediaType.parseMediaType("image/webp")
     );
     
     public static final String ERROR_NO_CONFIG = "未配置随机图片类型";
@@ -10,7 +10,12 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class CoverGenerationResponse {
+    private String jobId;
     private String status;
+    /**
+     * 当前阶段，参见 {@link cc.lik.coverImage.model.GenerationStage}
+     */
+    private String stage;
     private String message;
     private String imageUrl;
 }
@@ -1,13 +1,23 @@
 package cc.lik.coverImage.endpoint;
 
+import cc.lik.coverImage.config.CoverMetrics;
 import cc.lik.coverImage.dto.CoverGenerationResponse;
 import cc.lik.coverImage.dto.UploadCoverRequest;
+import cc.lik.coverImage.extension.CoverBackfill;
+import cc.lik.coverImage.model.GenerationJob;
+import cc.lik.coverImage.service.CoverBackfillService;
+import cc.lik.coverImage.service.CoverGenerationJobService;
+import cc.lik.coverImage.service.CoverUpdateService;
 import cc.lik.coverImage.service.ImageService;
 import cc.lik.coverImage.service.SettingConfigGetter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springdoc.webflux.core.fn.SpringdocRouteBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
@@ -33,6 +43,10 @@ public class CoverImageEndpoint implements CustomEndpoint {
     private final ReactiveExtensionClient client;
     private final ImageService imageService;
     private final SettingConfigGetter settingConfigGetter;
+    private final CoverGenerationJobService generationJobService;
+    private final CoverBackfillService backfillService;
+    private final CoverMetrics coverMetrics;
+    private final CoverUpdateService coverUpdateService;
 
     @Override
     public GroupVersion groupVersion() {
@@ -45,17 +59,50 @@ public class CoverImageEndpoint implements CustomEndpoint {
         return SpringdocRouteBuilder.route()
             .POST("generate/{postName}", this::generateCover,
                 builder -> builder.operationId("GenerateCover")
-                    .description("生成文章封面图")
+                    .description("提交文章封面图后台生成任务")
                     .tag(tag)
                     .parameter(parameterBuilder().name("postName").description("文章名称"))
                     .parameter(parameterBuilder().name("type").description("生成类型: randomImg, firstPostImg, customizeImg, aiGenerated"))
-                    .parameter(parameterBuilder().name("model").description("AI 模型"))
                     .parameter(parameterBuilder().name("size").description("图片尺寸"))
                     .parameter(parameterBuilder().name("style").description("图片风格"))
                     .response(responseBuilder().implementation(CoverGenerationResponse.class)))
+            .GET("status/{postName}", this::generationStatus,
+                builder -> builder.operationId("GetGenerationStatus")
+                    .description("查询封面图生成任务状态")
+                    .tag(tag)
+                    .parameter(parameterBuilder().name("postName").description("文章名称"))
+                    .response(responseBuilder().implementation(CoverGenerationResponse.class)))
+            .GET("status/{postName}/events", this::generationEvents,
+                builder -> builder.operationId("StreamGenerationStatus")
+                    .description("以 SSE 订阅封面图生成任务的阶段变更")
+                    .tag(tag)
+                    .parameter(parameterBuilder().name("postName").description("文章名称"))
+                    .response(responseBuilder().implementation(CoverGenerationResponse.class)))
+            .POST("backfill", this::startBackfill,
+                builder -> builder.operationId("StartCoverBackfill")
+                    .description("为没有封面的文章批量补全封面图，默认从上次检查点继续")
+                    .tag(tag)
+                    .parameter(parameterBuilder().name("restart").description("是否忽略检查点从头开始"))
+                    .response(responseBuilder().implementation(CoverBackfill.class)))
+            .POST("backfill/stop", this::stopBackfill,
+                builder -> builder.operationId("StopCoverBackfill")
+                    .description("停止批量补全封面图，保留检查点")
+                    .tag(tag)
+                    .response(responseBuilder().implementation(CoverBackfill.class)))
+            .GET("backfill", this::getBackfill,
+                builder -> builder.operationId("GetCoverBackfill")
+                    .description("查询批量补全封面图的进度、速率与失败记录")
+                    .tag(tag)
+                    .response(responseBuilder().implementation(CoverBackfill.class)))
+            .POST("upload/{postName}", this::uploadCoverFile,
+                builder -> builder.operationId("UploadCoverFile")
+                    .description("以文件流上传封面图并设置到文章，支持 multipart/form-data（file 字段）或直接提交图片二进制")
+                    .tag(tag)
+                    .parameter(parameterBuilder().name("postName").description("文章名称"))
+                    .response(responseBuilder().implementation(String.class)))
             .POST("upload", this::uploadCover,
                 builder -> builder.operationId("UploadCover")
-                    .description("上传封面图并设置到文章")
+                    .description("上传封面图并设置到文章，图片内容为 URL、Data URL 或 SVG 文本")
                     .tag(tag)
                     .requestBody(requestBodyBuilder().implementation(UploadCoverRequest.class))
                     .response(responseBuilder().implementation(String.class)))
@@ -63,12 +110,11 @@ public class CoverImageEndpoint implements CustomEndpoint {
     }
 
     /**
-     * 触发生成封面图
+     * 提交后台生成任务，立即返回任务 ID
      */
     private Mono<ServerResponse> generateCover(ServerRequest request) {
         String postName = request.pathVariable("postName");
         String type = request.queryParam("type").orElse("randomImg");
-        // String model = request.queryParam("model").orElse("doubao-seedream-4.5");
         String size = request.queryParam("size").orElse("2560x1440");
         String style = request.queryParam("style").orElse("默认");
         boolean watermark = Boolean.parseBoolean(request.queryParam("watermark").orElse("false"));
@@ -76,37 +122,13 @@ public class CoverImageEndpoint implements CustomEndpoint {
         log.info("收到生成封面图请求，文章: {}, 类型: {}, 尺寸: {}, 风格: {}, 水印: {}",
             postName, type, size, style, watermark);
 
-        // 使用 Mono 链式调用，直到生成完成才返回
-        return client.fetch(Post.class, postName)
-            .flatMap(post -> {
-                log.info("开始为文章[{}]生成封面图，策略: {}", post.getSpec().getTitle(), type);
-                
-                Mono<String> generationMono = switch (type) {
-                    case "firstPostImg" -> imageService.processFirstPostImage(post);
-                    case "aiGenerated" -> imageService.processAIGeneratedImage(post, size, style, watermark);
-                    default -> imageService.processRandomImage(post);
-                };
-
-                return generationMono
-                    .flatMap(imageUrl -> {
-                        // 重新获取最新的 Post 对象，避免版本冲突
-                        return client.fetch(Post.class, postName)
-                            .flatMap(latestPost -> {
-                                latestPost.getSpec().setCover(imageUrl);
-                                return client.update(latestPost)
-                                    .thenReturn(imageUrl); // 返回生成的图片 URL
-                            });
-                    });
-            })
-            .flatMap(imageUrl -> ServerResponse.ok()
+        return Mono.fromSupplier(
+                () -> generationJobService.submit(postName, type, size, style, watermark))
+            .flatMap(job -> ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(CoverGenerationResponse.builder()
-                    .status("success")
-                    .message("封面图生成成功")
-                    .imageUrl(imageUrl)
-                    .build()))
+                .bodyValue(job.toResponse()))
             .onErrorResume(e -> {
-                log.error("生成封面图失败: {}", e.getMessage());
+                log.error("提交封面图生成任务失败: {}", e.getMessage());
                 return ServerResponse.ok()
                     .contentType(MediaType.APPLICATION_JSON)
                     .bodyValue(CoverGenerationResponse.builder()
@@ -116,6 +138,55 @@ public class CoverImageEndpoint implements CustomEndpoint {
             });
     }
 
+    /**
+     * 查询文章最近一次生成任务的状态
+     */
+    private Mono<ServerResponse> generationStatus(ServerRequest request) {
+        String postName = request.pathVariable("postName");
+        var response = generationJobService.findByPost(postName)
+            .map(GenerationJob::toResponse)
+            .orElseGet(() -> CoverGenerationResponse.builder()
+                .status("idle")
+                .message("暂无生成任务")
+                .build());
+        return ServerResponse.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(response);
+    }
+
+    /**
+     * 以 SSE 推送生成任务的每个阶段
+     */
+    private Mono<ServerResponse> generationEvents(ServerRequest request) {
+        String postName = request.pathVariable("postName");
+        var events = generationJobService.stream(postName)
+            .map(event -> ServerSentEvent.builder(event)
+                .id(event.getJobId())
+                .event(event.getStage() != null ? event.getStage() : event.getStatus())
+                .build());
+        return ServerResponse.ok()
+            .contentType(MediaType.TEXT_EVENT_STREAM)
+            .body(events, new ParameterizedTypeReference<ServerSentEvent<CoverGenerationResponse>>() {
+            });
+    }
+
+    private Mono<ServerResponse> startBackfill(ServerRequest request) {
+        boolean restart = Boolean.parseBoolean(request.queryParam("restart").orElse("false"));
+        log.info("收到批量补全封面图请求，从头开始: {}", restart);
+        return backfillService.start(restart)
+            .flatMap(backfill -> ServerResponse.ok().bodyValue(backfill));
+    }
+
+    private Mono<ServerResponse> stopBackfill(ServerRequest request) {
+        return backfillService.stop()
+            .flatMap(backfill -> ServerResponse.ok().bodyValue(backfill));
+    }
+
+    private Mono<ServerResponse> getBackfill(ServerRequest request) {
+        return backfillService.getProgress()
+            .flatMap(backfill -> ServerResponse.ok().bodyValue(backfill));
+    }
+
     /**
      * 上传封面图并设置到文章
      */
@@ -129,16 +200,10 @@ public class CoverImageEndpoint implements CustomEndpoint {
                 
                 return client.fetch(Post.class, postName)
                     .flatMap(post -> imageService.uploadCoverImage(imageContent, post)
-                        .flatMap(imageUrl -> {
-                            // 重新获取最新的 Post 对象，设置封面
-                            return client.fetch(Post.class, postName)
-                                .flatMap(latestPost -> {
-                                    latestPost.getSpec().setCover(imageUrl);
-                                    return client.update(latestPost)
-                                        .thenReturn(imageUrl);
-                                });
-                        }));
+                        .flatMap(imageUrl -> coverUpdateService.setCover(postName, imageUrl)));
             })
+            .transform(coverMetrics::pipeline)
+            .contextWrite(CoverMetrics.strategy("upload"))
             .flatMap(imageUrl -> ServerResponse.ok()
                 .contentType(MediaType.TEXT_PLAIN)
                 .bodyValue(imageUrl))
@@ -149,4 +214,40 @@ public class CoverImageEndpoint implements CustomEndpoint {
                     .bodyValue("上传失败: " + e.getMessage());
             });
     }
+
+    /**
+     * 以文件流上传封面图并设置到文章，不经过 base64 编码；请求体边接收边写入临时文件，
+     * 不在内存中整体缓冲
+     */
+    private Mono<ServerResponse> uploadCoverFile(ServerRequest request) {
+        String postName = request.pathVariable("postName");
+        MediaType contentType = request.headers().contentType()
+            .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        log.info("收到上传封面图请求，文章: {}, Content-Type: {}", postName, contentType);
+
+        return client.fetch(Post.class, postName)
+            .switchIfEmpty(Mono.error(new IllegalArgumentException("文章不存在: " + postName)))
+            .flatMap(post -> MediaType.MULTIPART_FORM_DATA.isCompatibleWith(contentType)
+                ? uploadFilePart(request, post)
+                : imageService.uploadCoverImage(request.bodyToFlux(DataBuffer.class), contentType, post))
+            .flatMap(imageUrl -> coverUpdateService.setCover(postName, imageUrl))
+            .transform(coverMetrics::pipeline)
+            .contextWrite(CoverMetrics.strategy("upload"))
+            .flatMap(imageUrl -> ServerResponse.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .bodyValue(imageUrl))
+            .onErrorResume(e -> {
+                log.error("上传封面图失败: {}", e.getMessage());
+                return ServerResponse.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .bodyValue("上传失败: " + e.getMessage());
+            });
+    }
+
+    private Mono<String> uploadFilePart(ServerRequest request, Post post) {
+        return request.multipartData()
+            .flatMap(parts -> parts.getFirst("file") instanceof FilePart filePart
+                ? imageService.uploadCoverImage(filePart.content(), filePart.headers().getContentType(), post)
+                : Mono.error(new IllegalArgumentException("缺少 file 字段")));
+    }
 }
@@ -0,0 +1,77 @@
+package cc.lik.coverImage.extension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import run.halo.app.extension.AbstractExtension;
+import run.halo.app.extension.GVK;
+import run.halo.app.extension.Metadata;
+
+/**
+ * 批量补全封面图任务的进度与检查点，全局只有一个实例 {@link #NAME}
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@GVK(group = "coverimage.lik.cc", version = "v1alpha1", kind = "CoverBackfill",
+    plural = "coverbackfills", singular = "coverbackfill")
+public class CoverBackfill extends AbstractExtension {
+    public static final String NAME = "cover-backfill";
+    public static final int MAX_RECORDED_FAILURES = 50;
+
+    private Status status;
+
+    public static CoverBackfill create() {
+        var backfill = new CoverBackfill();
+        var metadata = new Metadata();
+        metadata.setName(NAME);
+        backfill.setMetadata(metadata);
+        backfill.setStatus(new Status());
+        return backfill;
+    }
+
+    public Status getStatusOrDefault() {
+        if (status == null) {
+            status = new Status();
+        }
+        return status;
+    }
+
+    @Data
+    public static class Status {
+        private Phase phase = Phase.IDLE;
+        /**
+         * 检查点：已处理完的最后一篇文章名称，按名称升序分页
+         */
+        private String cursor;
+        private int parallelism;
+        private long processed;
+        private long succeeded;
+        private long failed;
+        private long skipped;
+        /**
+         * 累计运行时长（毫秒），不含中断的时间
+         */
+        private long activeMillis;
+        private double postsPerMinute;
+        private Instant startTime;
+        private Instant lastCheckpointTime;
+        private String message;
+        private List<Failure> failures = new ArrayList<>();
+    }
+
+    @Data
+    public static class Failure {
+        private String postName;
+        private String message;
+    }
+
+    public enum Phase {
+        IDLE,
+        RUNNING,
+        STOPPED,
+        COMPLETED,
+        FAILED
+    }
+}
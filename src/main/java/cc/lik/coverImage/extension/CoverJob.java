@@ -0,0 +1,76 @@
+package cc.lik.coverImage.extension;
+
+import static io.swagger.v3.oas.annotations.media.Schema.RequiredMode.REQUIRED;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.Map;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import run.halo.app.extension.AbstractExtension;
+import run.halo.app.extension.GVK;
+import run.halo.app.extension.Metadata;
+
+/**
+ * 持久化的封面图生成任务，由 {@link cc.lik.coverImage.reconciler.CoverJobReconciler} 消费
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@GVK(group = "coverimage.lik.cc", version = "v1alpha1", kind = "CoverJob",
+    plural = "coverjobs", singular = "coverjob")
+public class CoverJob extends AbstractExtension {
+    public static final String NAME_PREFIX = "cover-job-";
+    public static final String POST_NAME_LABEL = "coverimage.lik.cc/post-name";
+
+    @Schema(requiredMode = REQUIRED)
+    private Spec spec;
+
+    private Status status;
+
+    /**
+     * 同一篇文章只对应一个任务，重复的发布事件会合并到该任务上
+     */
+    public static String nameOf(String postName) {
+        return NAME_PREFIX + postName;
+    }
+
+    public static CoverJob of(String postName) {
+        var job = new CoverJob();
+        var metadata = new Metadata();
+        metadata.setName(nameOf(postName));
+        metadata.setLabels(Map.of(POST_NAME_LABEL, postName));
+        job.setMetadata(metadata);
+        var spec = new Spec();
+        spec.setPostName(postName);
+        job.setSpec(spec);
+        job.setStatus(new Status());
+        return job;
+    }
+
+    public Status getStatusOrDefault() {
+        if (status == null) {
+            status = new Status();
+        }
+        return status;
+    }
+
+    @Data
+    public static class Spec {
+        @Schema(requiredMode = REQUIRED)
+        private String postName;
+    }
+
+    @Data
+    public static class Status {
+        private Phase phase = Phase.PENDING;
+        private int attempts;
+        private String lastError;
+        private Instant lastAttemptTime;
+    }
+
+    public enum Phase {
+        PENDING,
+        RUNNING,
+        FAILED
+    }
+}
@@ -1,37 +1,50 @@
 package cc.lik.coverImage.extension;
 
-import cc.lik.coverImage.service.ImgService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
-import run.halo.app.core.extension.content.Post;
 import run.halo.app.event.post.PostPublishedEvent;
-import run.halo.app.extension.ExtensionClient;
-import java.util.Objects;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.EnableAsync;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.extension.exception.DuplicateNameException;
 
+/**
+ * 文章发布时将封面图生成任务写入持久化队列，由 {@link cc.lik.coverImage.reconciler.CoverJobReconciler}
+ * 以固定数量的工作线程消费
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class CoverPostPublished {
-    private final ExtensionClient client;
-    private final ImgService imgSvc;
-    @Async
+    private final ReactiveExtensionClient client;
+
     @EventListener(PostPublishedEvent.class)
     public void onPostPublished(PostPublishedEvent event) {
-        Mono.justOrEmpty(client.fetch(Post.class, event.getName()))
-            .flatMap(post -> {
-                if (post.getSpec().getCover() == null || Objects.equals(post.getSpec().getCover(),
-                    "")) {
-                    return imgSvc.coverImg(post);
-                }
-               return Mono.empty();
-            })
-            .doOnError(e -> System.err.println("coverImg error: " + e.getMessage()))
-            .subscribe();
+        String postName = event.getName();
+        client.fetch(CoverJob.class, CoverJob.nameOf(postName))
+            .flatMap(existing -> requeueIfFailed(existing).thenReturn(existing))
+            .switchIfEmpty(Mono.defer(() -> client.create(CoverJob.of(postName))
+                // 同时到达的发布事件已创建了任务，视为已入队
+                .onErrorResume(DuplicateNameException.class,
+                    e -> client.fetch(CoverJob.class, CoverJob.nameOf(postName)))))
+            .doOnNext(job -> log.debug("文章[{}]封面图任务已入队: {}", postName,
+                job.getMetadata().getName()))
+            .subscribe(job -> {
+            }, e -> log.error("文章[{}]封面图任务入队失败: {}", postName, e.getMessage()));
     }
 
-
-
+    /**
+     * 进行中的任务直接合并；已放弃重试的任务重新计数后再次入队
+     */
+    private Mono<CoverJob> requeueIfFailed(CoverJob job) {
+        var status = job.getStatusOrDefault();
+        if (status.getPhase() != CoverJob.Phase.FAILED) {
+            return Mono.empty();
+        }
+        status.setPhase(CoverJob.Phase.PENDING);
+        status.setAttempts(0);
+        status.setLastError(null);
+        return client.update(job);
+    }
 }
@@ -0,0 +1,13 @@
+package cc.lik.coverImage.model;
+
+/**
+ * 自定义封面图的内容
+ *
+ * @param title1 左侧标题
+ * @param title2 右侧标题
+ * @param logoDataUri Logo data URI，可为空字符串
+ * @param gradient 背景渐变
+ */
+public record CoverDesign(String title1, String title2, String logoDataUri,
+                          CoverGradient gradient) {
+}
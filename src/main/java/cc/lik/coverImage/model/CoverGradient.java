@@ -0,0 +1,42 @@
+package cc.lik.coverImage.model;
+
+import java.util.List;
+
+/**
+ * 自定义封面图背景渐变
+ *
+ * @param angle 旋转角度，为空表示不旋转
+ * @param stops 渐变色标
+ */
+public record CoverGradient(Integer angle, List<Stop> stops) {
+    public static final CoverGradient DEFAULT = new CoverGradient(null, List.of(
+        new Stop("0%", "#aee2ff"),
+        new Stop("100%", "#7fbbf7")));
+
+    /**
+     * SVG linearGradient 的 gradientTransform 属性
+     */
+    public String toSvgTransform(int width, int height) {
+        if (angle == null) {
+            return "";
+        }
+        return String.format("gradientTransform=\"rotate(%d %d %d)\"", angle, width / 2,
+            height / 2);
+    }
+
+    public String toSvgStops() {
+        var sb = new StringBuilder();
+        for (Stop stop : stops) {
+            sb.append("<stop offset=\"").append(stop.offset())
+                .append("\" stop-color=\"").append(stop.color()).append("\"/>");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param offset 位置，如 50%
+     * @param color CSS 颜色
+     */
+    public record Stop(String offset, String color) {
+    }
+}
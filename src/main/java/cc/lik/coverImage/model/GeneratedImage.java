@@ -0,0 +1,19 @@
+package cc.lik.coverImage.model;
+
+import java.nio.file.Path;
+import org.springframework.http.MediaType;
+
+/**
+ * AI 服务商返回的图片，尚未转存到附件存储
+ */
+public sealed interface GeneratedImage {
+    /**
+     * 服务商返回的图片地址
+     */
+    record Remote(String url) implements GeneratedImage {}
+
+    /**
+     * 服务商内联返回的图片，已解码到临时文件，转存后由调用方删除
+     */
+    record Spooled(Path file, String filename, MediaType mediaType) implements GeneratedImage {}
+}
@@ -0,0 +1,111 @@
+package cc.lik.coverImage.model;
+
+import cc.lik.coverImage.dto.CoverGenerationResponse;
+import java.time.Duration;
+import java.time.Instant;
+import lombok.Getter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 后台封面图生成任务，记录当前阶段并向订阅者推送阶段变更
+ */
+@Getter
+public class GenerationJob {
+    public static final String STATUS_GENERATING = "generating";
+    public static final String STATUS_SUCCESS = "success";
+    public static final String STATUS_FAILED = "failed";
+
+    private final String jobId;
+    private final String postName;
+    private final String type;
+    private final Instant startedAt = Instant.now();
+    private volatile GenerationStage stage = GenerationStage.QUEUED;
+    private volatile String message = GenerationStage.QUEUED.getDescription();
+    private volatile String imageUrl;
+    private volatile Instant finishedAt;
+    private volatile Disposable subscription;
+
+    private final Sinks.Many<CoverGenerationResponse> events =
+        Sinks.many().replay().all();
+
+    public GenerationJob(String jobId, String postName, String type) {
+        this.jobId = jobId;
+        this.postName = postName;
+        this.type = type;
+        events.tryEmitNext(toResponse());
+    }
+
+    public synchronized void advance(GenerationStage next) {
+        if (isFinished()) {
+            return;
+        }
+        this.stage = next;
+        this.message = next.getDescription();
+        events.tryEmitNext(toResponse());
+    }
+
+    public synchronized void succeed(String imageUrl) {
+        if (isFinished()) {
+            return;
+        }
+        this.imageUrl = imageUrl;
+        this.stage = GenerationStage.COMPLETED;
+        this.message = GenerationStage.COMPLETED.getDescription();
+        this.finishedAt = Instant.now();
+        events.tryEmitNext(toResponse());
+        events.tryEmitComplete();
+    }
+
+    public synchronized void fail(Throwable e) {
+        if (isFinished()) {
+            return;
+        }
+        this.stage = GenerationStage.FAILED;
+        this.message = "生成失败: " + e.getMessage();
+        this.finishedAt = Instant.now();
+        events.tryEmitNext(toResponse());
+        events.tryEmitComplete();
+    }
+
+    public void bind(Disposable subscription) {
+        this.subscription = subscription;
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    /**
+     * 任务结束后是否已超过保留时长
+     */
+    public boolean isExpired(Duration retention) {
+        return finishedAt != null && finishedAt.plus(retention).isBefore(Instant.now());
+    }
+
+    public String getStatus() {
+        return switch (stage) {
+            case COMPLETED -> STATUS_SUCCESS;
+            case FAILED -> STATUS_FAILED;
+            default -> STATUS_GENERATING;
+        };
+    }
+
+    /**
+     * 阶段变更事件流，新订阅者会先收到已发生的全部阶段
+     */
+    public Flux<CoverGenerationResponse> events() {
+        return events.asFlux();
+    }
+
+    public CoverGenerationResponse toResponse() {
+        return CoverGenerationResponse.builder()
+            .jobId(jobId)
+            .status(getStatus())
+            .stage(stage.name())
+            .message(message)
+            .imageUrl(imageUrl)
+            .build();
+    }
+}
@@ -0,0 +1,23 @@
+package cc.lik.coverImage.model;
+
+/**
+ * 封面图生成任务的阶段
+ */
+public enum GenerationStage {
+    QUEUED("任务已提交，等待执行"),
+    POST_FETCHED("已获取文章信息"),
+    IMAGE_READY("封面图已生成并转存"),
+    POST_UPDATED("文章封面已更新"),
+    COMPLETED("封面图生成成功"),
+    FAILED("封面图生成失败");
+
+    private final String description;
+
+    GenerationStage(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,79 @@
+package cc.lik.coverImage.model;
+
+import javax.imageio.ImageIO;
+import org.springframework.http.MediaType;
+
+/**
+ * 封面图输出格式
+ */
+public enum ImageFormat {
+    SVG("svg", ".svg", MediaType.parseMediaType("image/svg+xml"), false, true),
+    PNG("png", ".png", MediaType.IMAGE_PNG, false, true),
+    JPEG("jpeg", ".jpg", MediaType.IMAGE_JPEG, true, false),
+    WEBP("webp", ".webp", MediaType.parseMediaType("image/webp"), true, true);
+
+    private final String formatName;
+    private final String extension;
+    private final MediaType mediaType;
+    private final boolean lossy;
+    private final boolean alpha;
+
+    ImageFormat(String formatName, String extension, MediaType mediaType, boolean lossy,
+        boolean alpha) {
+        this.formatName = formatName;
+        this.extension = extension;
+        this.mediaType = mediaType;
+        this.lossy = lossy;
+        this.alpha = alpha;
+    }
+
+    /**
+     * 按名称解析，无法识别时返回默认值
+     */
+    public static ImageFormat from(String name, ImageFormat defaultFormat) {
+        if (name == null || name.isBlank()) {
+            return defaultFormat;
+        }
+        return switch (name.trim().toLowerCase()) {
+            case "svg" -> SVG;
+            case "png" -> PNG;
+            case "jpg", "jpeg" -> JPEG;
+            case "webp" -> WEBP;
+            default -> defaultFormat;
+        };
+    }
+
+    /**
+     * 当前运行环境是否有对应的 ImageIO 编码器，JDK 默认不带 WebP 编码器
+     */
+    public boolean isEncodable() {
+        return this != SVG && ImageIO.getImageWritersByFormatName(formatName).hasNext();
+    }
+
+    /**
+     * 不可编码时退回的位图格式
+     */
+    public ImageFormat encodableOr(ImageFormat fallback) {
+        return isEncodable() ? this : fallback;
+    }
+
+    public String getFormatName() {
+        return formatName;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public boolean isLossy() {
+        return lossy;
+    }
+
+    public boolean hasAlpha() {
+        return alpha;
+    }
+}
@@ -0,0 +1,18 @@
+package cc.lik.coverImage.model;
+
+/**
+ * 从文件头读取的图片信息
+ *
+ * @param format 格式名称，如 png、jpeg、webp
+ * @param width 像素宽度，无法确定时为 0
+ * @param height 像素高度，无法确定时为 0
+ */
+public record ImageInfo(String format, int width, int height) {
+
+    /**
+     * 宽高比，尺寸未知时为 0
+     */
+    public double aspectRatio() {
+        return height == 0 ? 0 : (double) width / height;
+    }
+}
@@ -0,0 +1,35 @@
+package cc.lik.coverImage.reconciler;
+
+import cc.lik.coverImage.extension.CoverBackfill;
+import cc.lik.coverImage.service.CoverBackfillService;
+import java.time.Duration;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.controller.Controller;
+import run.halo.app.extension.controller.ControllerBuilder;
+import run.halo.app.extension.controller.Reconciler;
+
+/**
+ * 插件启动时同步 {@link CoverBackfill}，继续被重启中断的补全任务
+ */
+@Component
+@RequiredArgsConstructor
+public class CoverBackfillReconciler implements Reconciler<Reconciler.Request> {
+    private final CoverBackfillService backfillService;
+
+    @Override
+    public Result reconcile(Request request) {
+        if (CoverBackfill.NAME.equals(request.name())) {
+            backfillService.resumeIfInterrupted().block(Duration.ofSeconds(30));
+        }
+        return Result.doNotRetry();
+    }
+
+    @Override
+    public Controller setupWith(ControllerBuilder builder) {
+        return builder
+            .extension(new CoverBackfill())
+            .workerCount(1)
+            .build();
+    }
+}
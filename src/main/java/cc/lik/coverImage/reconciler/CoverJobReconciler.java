@@ -0,0 +1,129 @@
+package cc.lik.coverImage.reconciler;
+
+import cc.lik.coverImage.extension.CoverJob;
+import cc.lik.coverImage.service.ImageService.NoCoverCandidateException;
+import cc.lik.coverImage.service.ImgService;
+import java.time.Duration;
+import java.time.Instant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.springframework.stereotype.Component;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.extension.ExtensionClient;
+import run.halo.app.extension.controller.Controller;
+import run.halo.app.extension.controller.ControllerBuilder;
+import run.halo.app.extension.controller.Reconciler;
+
+/**
+ * 封面图任务队列的消费者
+ *
+ * <p>工作线程数量固定，因此无论同时发布多少文章，对外的下载与 AI 调用并发都有上限。
+ * 任务状态保存在 {@link CoverJob} 中，插件重启后控制器会重新同步所有未完成的任务。</p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CoverJobReconciler implements Reconciler<Reconciler.Request> {
+    private static final int WORKER_COUNT = 2;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration GENERATION_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(30);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(30);
+
+    private final ExtensionClient client;
+    private final ImgService imgService;
+
+    @Override
+    public Result reconcile(Request request) {
+        var job = client.fetch(CoverJob.class, request.name()).orElse(null);
+        if (job == null || job.getMetadata().getDeletionTimestamp() != null) {
+            return Result.doNotRetry();
+        }
+        var status = job.getStatusOrDefault();
+        if (status.getPhase() == CoverJob.Phase.FAILED) {
+            return Result.doNotRetry();
+        }
+        // 状态更新也会触发调和，未到重试时间的任务继续等待
+        var remaining = remainingBackoff(status);
+        if (!remaining.isZero()) {
+            return Result.requeue(remaining);
+        }
+
+        String postName = job.getSpec().getPostName();
+        var post = client.fetch(Post.class, postName).orElse(null);
+        if (post == null || StringUtils.isNotBlank(post.getSpec().getCover())) {
+            log.debug("文章[{}]不存在或已有封面，移除任务", postName);
+            client.delete(job);
+            return Result.doNotRetry();
+        }
+
+        status.setPhase(CoverJob.Phase.RUNNING);
+        status.setAttempts(status.getAttempts() + 1);
+        status.setLastAttemptTime(Instant.now());
+        client.update(job);
+
+        try {
+            imgService.coverImg(post).block(GENERATION_TIMEOUT);
+            log.info("文章[{}]封面图任务完成，尝试次数: {}", postName, status.getAttempts());
+            client.fetch(CoverJob.class, request.name()).ifPresent(client::delete);
+            return Result.doNotRetry();
+        } catch (Exception e) {
+            return handleFailure(request.name(), e);
+        }
+    }
+
+    private Result handleFailure(String jobName, Exception e) {
+        var job = client.fetch(CoverJob.class, jobName).orElse(null);
+        if (job == null) {
+            return Result.doNotRetry();
+        }
+        var status = job.getStatusOrDefault();
+        status.setLastError(e.getMessage());
+        if (ExceptionUtils.indexOfType(e, NoCoverCandidateException.class) >= 0) {
+            // 文章本身没有可用的图片，重试不会改变结果
+            log.warn("文章[{}]没有可作为封面的图片，不再重试: {}", job.getSpec().getPostName(),
+                e.getMessage());
+            status.setPhase(CoverJob.Phase.FAILED);
+            client.update(job);
+            return Result.doNotRetry();
+        }
+        if (status.getAttempts() >= MAX_ATTEMPTS) {
+            log.error("文章[{}]封面图任务已失败 {} 次，放弃重试: {}", job.getSpec().getPostName(),
+                status.getAttempts(), e.getMessage());
+            status.setPhase(CoverJob.Phase.FAILED);
+            client.update(job);
+            return Result.doNotRetry();
+        }
+        status.setPhase(CoverJob.Phase.PENDING);
+        client.update(job);
+        var backoff = backoff(status.getAttempts());
+        log.warn("文章[{}]封面图任务第 {} 次失败，{} 秒后重试: {}", job.getSpec().getPostName(),
+            status.getAttempts(), backoff.toSeconds(), e.getMessage());
+        return Result.requeue(backoff);
+    }
+
+    private Duration remainingBackoff(CoverJob.Status status) {
+        if (status.getPhase() != CoverJob.Phase.PENDING || status.getAttempts() == 0
+            || status.getLastAttemptTime() == null) {
+            return Duration.ZERO;
+        }
+        var dueTime = status.getLastAttemptTime().plus(backoff(status.getAttempts()));
+        var remaining = Duration.between(Instant.now(), dueTime);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    private Duration backoff(int attempts) {
+        var delay = INITIAL_BACKOFF.multipliedBy(1L << Math.min(attempts - 1, 10));
+        return delay.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : delay;
+    }
+
+    @Override
+    public Controller setupWith(ControllerBuilder builder) {
+        return builder
+            .extension(new CoverJob())
+            .workerCount(WORKER_COUNT)
+            .build();
+    }
+}
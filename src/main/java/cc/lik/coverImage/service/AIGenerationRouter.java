@@ -0,0 +1,17 @@
+package cc.lik.coverImage.service;
+
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+
+/**
+ * 在多条 AI 生成线路（服务商 + 模型）之间选择与切换
+ */
+public interface AIGenerationRouter {
+    /**
+     * 按线路的延迟与成功率依次尝试，直到成功或超过总超时；生成成功后再转存一次，
+     * 转存不计入线路的耗时与超时
+     *
+     * @return 转存后的封面图地址
+     */
+    Mono<String> generate(Post post, String size, String style, boolean watermark);
+}
@@ -1,11 +1,23 @@
 package cc.lik.coverImage.service;
 
+import cc.lik.coverImage.model.GeneratedImage;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.content.Post;
 
 public interface AIImageGenerator {
 
-    Mono<String> generateImage(Post post, String size, String style, boolean watermark);
+    default Mono<GeneratedImage> generateImage(Post post, String size, String style,
+        boolean watermark) {
+        return generateImage(post, size, style, watermark, null);
+    }
+
+    /**
+     * 使用指定模型生成图片，只调用服务商接口，不转存
+     *
+     * @param model 模型名称，为空时使用该服务商设置中的模型
+     */
+    Mono<GeneratedImage> generateImage(Post post, String size, String style, boolean watermark,
+        String model);
 
     String supportAiProvider();
 
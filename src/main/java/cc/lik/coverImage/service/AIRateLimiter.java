@@ -0,0 +1,18 @@
+package cc.lik.coverImage.service;
+
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * AI 服务商调用的限流与并发控制
+ */
+public interface AIRateLimiter {
+    /**
+     * 按服务商的限流配置排队执行调用
+     *
+     * @param provider 服务商标识，见 {@link AIImageGenerator#supportAiProvider()}
+     * @param call 实际调用，取得名额后才会订阅
+     * @return 调用结果；排队超时返回 {@link cc.lik.coverImage.util.ProviderThrottle.QueueTimeoutException}
+     */
+    <T> Mono<T> execute(String provider, Supplier<Mono<T>> call);
+}
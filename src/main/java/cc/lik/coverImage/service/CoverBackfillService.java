@@ -0,0 +1,38 @@
+package cc.lik.coverImage.service;
+
+import cc.lik.coverImage.extension.CoverBackfill;
+import reactor.core.publisher.Mono;
+
+/**
+ * 为没有封面的存量文章批量生成封面图
+ */
+public interface CoverBackfillService {
+    /**
+     * 启动补全任务，默认从上次的检查点继续
+     *
+     * @param restart 是否忽略检查点从头开始
+     * @return 当前进度
+     */
+    Mono<CoverBackfill> start(boolean restart);
+
+    /**
+     * 停止补全任务，保留检查点
+     *
+     * @return 当前进度
+     */
+    Mono<CoverBackfill> stop();
+
+    /**
+     * 获取补全任务进度
+     *
+     * @return 当前进度
+     */
+    Mono<CoverBackfill> getProgress();
+
+    /**
+     * 插件重启后继续处于运行状态但已中断的补全任务
+     *
+     * @return 是否重新启动了任务
+     */
+    Mono<Boolean> resumeIfInterrupted();
+}
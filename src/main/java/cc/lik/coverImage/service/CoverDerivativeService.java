@@ -0,0 +1,71 @@
+package cc.lik.coverImage.service;
+
+import cc.lik.coverImage.model.ImageFormat;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+
+/**
+ * 封面图响应式衍生图
+ *
+ * <p>转存封面图后按配置的宽度生成缩略图，地址以 srcset 格式记录在附件与文章注解
+ * {@link #SRCSET_ANNOTATION} 中，主题可直接用于 {@code <img srcset>}。附件同时带有
+ * {@link #PERMALINK_LABEL} 标签，设置封面时按图片地址查到附件并读取其中的 srcset。</p>
+ */
+public interface CoverDerivativeService {
+    String SRCSET_ANNOTATION = "coverimage.lik.cc/srcset";
+
+    /**
+     * 附件地址标签，值为 {@link #permalinkKey(String)}；地址本身含有标签值不允许的字符
+     */
+    String PERMALINK_LABEL = "coverimage.lik.cc/permalink-sha256";
+
+    /**
+     * 按宽度生成衍生图，不放大，宽度不小于原图的尺寸会被跳过
+     *
+     * @param source 原图字节
+     * @param widths 升序的目标宽度
+     * @param format 目标格式，不可编码时退回 JPEG
+     * @param quality 有损格式的压缩质量，0-1
+     * @return 编码后的衍生图，原图无法解码时为空列表
+     */
+    Mono<List<Derivative>> render(byte[] source, List<Integer> widths, ImageFormat format,
+        float quality);
+
+    /**
+     * 按封面图地址查找对应附件上记录的 srcset
+     *
+     * @return 附件不存在或没有衍生图时为空
+     */
+    Mono<String> findSrcset(String imageUrl);
+
+    /**
+     * 写入或清除文章的 srcset 注解，需在更新文章前调用
+     *
+     * @param srcset 新封面图的 srcset，为空时清除旧封面留下的注解
+     */
+    void annotate(Post post, String srcset);
+
+    /**
+     * 图片地址 SHA-256 的 base64url 编码，用作 {@link #PERMALINK_LABEL} 的值
+     */
+    static String permalinkKey(String permalink) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(permalink.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 编码后的衍生图
+     */
+    record Derivative(int width, int height, ImageFormat format, byte[] bytes) {
+    }
+}
@@ -0,0 +1,40 @@
+package cc.lik.coverImage.service;
+
+import cc.lik.coverImage.dto.CoverGenerationResponse;
+import cc.lik.coverImage.model.GenerationJob;
+import java.util.Optional;
+import reactor.core.publisher.Flux;
+
+/**
+ * 后台封面图生成任务服务
+ */
+public interface CoverGenerationJobService {
+    /**
+     * 提交生成任务，立即返回；同一文章已有进行中的任务时直接返回该任务
+     *
+     * @param postName 文章名称
+     * @param type 生成类型: randomImg, firstPostImg, customizeImg, aiGenerated
+     * @param size 图片尺寸
+     * @param style 图片风格
+     * @param watermark 是否添加水印
+     * @return 任务
+     */
+    GenerationJob submit(String postName, String type, String size, String style,
+        boolean watermark);
+
+    /**
+     * 获取文章最近一次的生成任务
+     *
+     * @param postName 文章名称
+     * @return 任务
+     */
+    Optional<GenerationJob> findByPost(String postName);
+
+    /**
+     * 订阅文章生成任务的阶段变更
+     *
+     * @param postName 文章名称
+     * @return 阶段事件流，没有任务时只返回一条 idle 状态
+     */
+    Flux<CoverGenerationResponse> stream(String postName);
+}
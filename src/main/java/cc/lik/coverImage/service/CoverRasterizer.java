@@ -0,0 +1,21 @@
+package cc.lik.coverImage.service;
+
+import cc.lik.coverImage.model.CoverDesign;
+import cc.lik.coverImage.model.ImageFormat;
+import reactor.core.publisher.Mono;
+
+/**
+ * 自定义封面图栅格化
+ */
+public interface CoverRasterizer {
+    /**
+     * 按 cover.svg 的版式将封面绘制为位图
+     *
+     * @param design 封面内容
+     * @param format 位图格式，不能为 SVG
+     * @param width 输出宽度，高度按 1200x630 的比例计算
+     * @param quality 有损格式的压缩质量，0-1
+     * @return 编码后的图片字节
+     */
+    Mono<byte[]> rasterize(CoverDesign design, ImageFormat format, int width, float quality);
+}
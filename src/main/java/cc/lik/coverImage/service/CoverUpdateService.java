@@ -0,0 +1,38 @@
+package cc.lik.coverImage.service;
+
+import cc.lik.coverImage.model.GenerationStage;
+import java.util.function.Consumer;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+
+/**
+ * 生成封面图并写入文章
+ *
+ * <p>同一文章、策略与参数的并发请求共享同一次生成与文章更新：发布事件、批量补全、
+ * 控制台按钮或多个标签页同时触发时，只调用一次图片服务、上传一次附件、更新一次文章。</p>
+ */
+public interface CoverUpdateService {
+    /**
+     * 为文章生成封面图并设置为文章封面
+     *
+     * @param post 文章，生成时使用；写入封面时会重新获取最新版本
+     * @param strategy 生成类型: randomImg, firstPostImg, customizeImg, aiGenerated
+     * @param size AI 生成的图片尺寸
+     * @param style AI 生成的图片风格
+     * @param watermark AI 生成是否添加水印
+     * @param progress 阶段回调，只有实际执行生成的调用方会收到
+     *     {@link GenerationStage#IMAGE_READY}
+     * @return 封面图地址
+     */
+    Mono<String> generate(Post post, String strategy, String size, String style,
+        boolean watermark, Consumer<GenerationStage> progress);
+
+    /**
+     * 重新获取最新的文章并设置封面与 srcset 注解，版本冲突时只重试这一步
+     *
+     * @param postName 文章名称
+     * @param imageUrl 已转存的封面图地址
+     * @return 封面图地址；文章不存在时返回错误
+     */
+    Mono<String> setCover(String postName, String imageUrl);
+}
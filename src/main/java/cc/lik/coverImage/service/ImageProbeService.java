@@ -0,0 +1,17 @@
+package cc.lik.coverImage.service;
+
+import cc.lik.coverImage.model.ImageInfo;
+import reactor.core.publisher.Mono;
+
+/**
+ * 远程图片探测服务
+ */
+public interface ImageProbeService {
+    /**
+     * 只读取文件头获取图片的真实格式与尺寸，不下载完整图片
+     *
+     * @param url 图片地址，站内相对路径会按站点外部地址解析
+     * @return 图片信息
+     */
+    Mono<ImageInfo> probe(String url);
+}
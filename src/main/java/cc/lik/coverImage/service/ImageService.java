@@ -1,5 +1,8 @@
 package cc.lik.coverImage.service;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.content.Post;
 
@@ -45,4 +48,22 @@ public interface ImageService {
      * @return 上传后的图片URL
      */
     Mono<String> uploadCoverImage(String imageContent, Post post);
-} 
\ No newline at end of file
+
+    /**
+     * 以数据流上传封面图片，内容经 {@link ImageTransferService} 暂存到临时文件后上传
+     * @param content 图片数据流
+     * @param mediaType 声明的媒体类型，为空或非图片类型时根据文件头识别
+     * @param post 文章对象
+     * @return 上传后的图片URL
+     */
+    Mono<String> uploadCoverImage(Flux<DataBuffer> content, MediaType mediaType, Post post);
+
+    /**
+     * 文章中没有可作为封面的图片；内容不变时重试也不会成功
+     */
+    class NoCoverCandidateException extends IllegalStateException {
+        public NoCoverCandidateException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cc.lik.coverImage.service;
+
+import cc.lik.coverImage.model.ImageFormat;
+import reactor.core.publisher.Mono;
+
+/**
+ * 存储前的图片重新压缩
+ */
+public interface ImageTranscodeService {
+    /**
+     * 将图片的长边限制在 maxLongEdge 以内并按目标格式重新编码
+     *
+     * @param source 原图字节
+     * @param maxLongEdge 长边上限（像素）
+     * @param format 目标格式，不可编码时退回 JPEG
+     * @param quality 有损格式的压缩质量，0-1
+     * @param skipBelowBytes 长边未超限且不超过该字节数的图片不处理
+     * @return 重新编码的结果；无需处理、无法解码或重新编码后反而更大时为空
+     */
+    Mono<Transcoded> transcode(byte[] source, int maxLongEdge, ImageFormat format, float quality,
+        long skipBelowBytes);
+
+    /**
+     * 重新编码后的图片
+     */
+    record Transcoded(int width, int height, ImageFormat format, byte[] bytes) {
+    }
+}
@@ -16,9 +16,59 @@ public interface ImageTransferService {
      */
     Mono<String> updateFile(String picUrl, Post post);
 
+    /**
+     * 以指定用户身份转存图片，失败时返回原始URL
+     *
+     * @param picUrl 图片URL
+     * @param ownerName 附件所属用户名
+     * @return 更新后的URL
+     */
+    Mono<String> updateFile(String picUrl, String ownerName);
+
+    /**
+     * 下载远程图片并上传到附件存储，与 {@link #updateFile(String, Post)} 不同，
+     * 失败时返回错误而不是原始URL
+     *
+     * @param picUrl 图片URL
+     * @param post 文章
+     * @return 上传后的URL
+     */
+    Mono<String> transferFile(String picUrl, Post post);
+
+    /**
+     * 以指定用户身份转存图片备用，附件带有预取标签，取用前可随时丢弃；失败时返回错误
+     *
+     * @param picUrl 图片URL
+     * @param ownerName 附件所属用户名
+     * @return 上传后的URL
+     */
+    Mono<String> prefetchFile(String picUrl, String ownerName);
+
+    /**
+     * 取用预取的附件，移除其预取标签后不再会被丢弃
+     *
+     * @param permalink {@link #prefetchFile(String, String)} 返回的地址
+     * @return 附件地址；附件已被删除或已被取用时为空
+     */
+    Mono<String> claimPrefetched(String permalink);
+
+    /**
+     * 删除尚未取用的预取附件及其衍生图
+     *
+     * @param permalink {@link #prefetchFile(String, String)} 返回的地址
+     */
+    Mono<Void> discardPrefetched(String permalink);
+
+    /**
+     * 删除所有尚未取用的预取附件，用于清理重启前遗留的缓冲
+     */
+    Mono<Void> discardAllPrefetched();
+
     /**
      * 更新文件
      *
+     * <p>数据流边接收边计算摘要并写入临时文件，缓冲区随即释放；去重未命中时再从临时文件流式上传。</p>
+     *
      * @param dataBufferFlux 图片数据流
      * @param post 文章
      * @param filename 文件名
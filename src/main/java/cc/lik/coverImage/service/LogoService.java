@@ -0,0 +1,16 @@
+package cc.lik.coverImage.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 自定义封面图 Logo 服务
+ */
+public interface LogoService {
+    /**
+     * 获取缩放后的 Logo，以 data URI 形式返回
+     *
+     * @param logoUrl Logo 完整地址
+     * @return data URI，获取失败时为空字符串
+     */
+    Mono<String> getLogoDataUri(String logoUrl);
+}
@@ -0,0 +1,17 @@
+package cc.lik.coverImage.service;
+
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+
+/**
+ * 随机图服务
+ */
+public interface RandomImageService {
+    /**
+     * 为文章取一张已转存的随机图，优先使用预取缓冲区中的图片
+     *
+     * @param post 文章
+     * @return 图片URL
+     */
+    Mono<String> take(Post post);
+}
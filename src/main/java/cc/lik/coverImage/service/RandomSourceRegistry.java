@@ -0,0 +1,16 @@
+package cc.lik.coverImage.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 随机图源注册表
+ */
+public interface RandomSourceRegistry {
+    /**
+     * 从健康且最快的图源获取一张随机图的地址，失败时依次切换到其他图源
+     *
+     * @param randomType 随机图类型
+     * @return 图片地址
+     */
+    Mono<String> resolve(String randomType);
+}
@@ -1,11 +1,21 @@
 package cc.lik.coverImage.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import lombok.Data;
 import reactor.core.publisher.Mono;
 
 public interface SettingConfigGetter {
+    /**
+     * 获取基本设置，返回的对象为共享快照，调用方不应修改
+     */
     Mono<BasicConfig> getBasicConfig();
 
+    /**
+     * 获取 AI 设置，返回的对象为共享快照，调用方不应修改
+     */
+
     Mono<AIConfig> getAIConfig();
 
     @Data
@@ -14,6 +24,137 @@ public interface SettingConfigGetter {
         private String fileGroup;
         private String filePolicy;
         private String randomType;
+        /**
+         * 每种随机图类型预取并转存的图片数量，0 表示不预取
+         */
+        private Integer randomPrefetchSize = 3;
+        /**
+         * 自定义随机图源，与内置图源一起按健康度选择
+         */
+        private List<RandomSource> randomSources = new ArrayList<>();
+        /**
+         * 对冲请求延迟（毫秒），首选图源超过该时间未返回时同时请求次优图源，0 表示关闭
+         */
+        private Integer randomHedgeDelayMs = 0;
+        /**
+         * 文章首图的最小宽度，过滤表情、徽章等小图
+         */
+        private Integer firstImageMinWidth = 400;
+        /**
+         * 文章首图的最小高度
+         */
+        private Integer firstImageMinHeight = 200;
+        /**
+         * 文章首图允许的宽高比范围（宽/高）
+         */
+        private Double firstImageMinAspectRatio = 0.5;
+        private Double firstImageMaxAspectRatio = 3.0;
+        /**
+         * 批量补全封面图时同时处理的文章数
+         */
+        private Integer backfillParallelism = 2;
+        /**
+         * 远程图片下载与封面上传的大小上限（MB）
+         */
+        private Integer maxDownloadSizeMb = 20;
+        /**
+         * 自定义封面图输出格式：svg、png、jpeg、webp
+         */
+        private String customizeRenderFormat = "svg";
+        /**
+         * 自定义封面图栅格化宽度
+         */
+        private Integer customizeRenderWidth = 1200;
+        /**
+         * 有损格式的压缩质量（1-100）
+         */
+        private Integer customizeRenderQuality = 85;
+        /**
+         * 是否为转存的封面图生成多种宽度的衍生图
+         */
+        private Boolean derivativeEnabled = false;
+        /**
+         * 衍生图宽度，逗号分隔
+         */
+        private String derivativeWidths = "400,800,1280";
+        /**
+         * 衍生图格式：webp、jpeg、png
+         */
+        private String derivativeFormat = "webp";
+        /**
+         * 衍生图压缩质量（1-100）
+         */
+        private Integer derivativeQuality = 80;
+        /**
+         * 是否在存储前重新压缩过大的图片
+         */
+        private Boolean transcodeEnabled = false;
+        /**
+         * 重新压缩后的长边上限（像素）
+         */
+        private Integer transcodeMaxLongEdge = 2560;
+        /**
+         * 重新压缩的目标格式：jpeg、webp、png
+         */
+        private String transcodeFormat = "jpeg";
+        /**
+         * 重新压缩的质量（1-100）
+         */
+        private Integer transcodeQuality = 85;
+        /**
+         * 长边未超限且不超过该大小（KB）的图片保持原样
+         */
+        private Integer transcodeSkipBelowKb = 500;
+
+        /**
+         * 单张图片允许的最大字节数
+         */
+        public long maxDownloadBytes() {
+            int megabytes = maxDownloadSizeMb == null ? 20 : Math.max(1, maxDownloadSizeMb);
+            return megabytes * 1024L * 1024L;
+        }
+
+        /**
+         * 去重并升序排列的衍生图宽度，未开启或未配置时为空
+         */
+        public List<Integer> derivativeWidthList() {
+            if (!Boolean.TRUE.equals(derivativeEnabled) || derivativeWidths == null) {
+                return List.of();
+            }
+            return Arrays.stream(derivativeWidths.split("[,，\\s]+"))
+                .map(String::trim)
+                .filter(width -> width.matches("\\d{1,4}"))
+                .map(Integer::valueOf)
+                .filter(width -> width >= 16)
+                .distinct()
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * 随机图源，响应须为 JSON，图片地址按 JSON Pointer 读取
+     */
+    @Data
+    class RandomSource {
+        private String name;
+        /**
+         * 对应的随机图类型：acg、views、all4k
+         */
+        private String type;
+        private String url;
+        /**
+         * 图片地址的 JSON Pointer，多个用逗号分隔，依次尝试，如 {@code /imgurl,/url}
+         */
+        private String imagePointer;
+        /**
+         * 可选，成功标识的 JSON Pointer，如 {@code /code}
+         */
+        private String successPointer;
+        /**
+         * 成功标识的期望值，如 {@code 200}
+         */
+        private String successValue;
     }
 
     @Data
@@ -28,5 +169,67 @@ public interface SettingConfigGetter {
         private String volcApiBaseUrl = "https://ark.cn-beijing.volces.com/api/v3";
         private String volcApiKey;
         private String volcModel = "doubao-seedream-4-5-251128";
+        private Double volcRatePerMinute = 10.0;
+        private Integer volcBurst = 2;
+        private Integer volcMaxConcurrent = 2;
+        // CodeSphere 限流
+        private Double codesphereRatePerMinute = 10.0;
+        private Integer codesphereBurst = 2;
+        private Integer codesphereMaxConcurrent = 2;
+        /**
+         * 等待限流名额的最长时间（秒）
+         */
+        private Integer queueTimeoutSeconds = 120;
+        /**
+         * 备用生成线路，与主服务商一起按延迟与成功率排序，失败时依次切换
+         */
+        private List<AIRoute> fallbackRoutes = new ArrayList<>();
+        /**
+         * 单条线路的超时时间（秒），超时后切换到下一条线路
+         */
+        private Integer attemptTimeoutSeconds = 150;
+        /**
+         * 整个生成过程（含排队与切换）的超时时间（秒）
+         */
+        private Integer totalTimeoutSeconds = 300;
+
+        /**
+         * 服务商的限流配置，未配置的服务商使用默认值
+         */
+        public RateLimit rateLimitOf(String provider) {
+            return switch (provider) {
+                case "volcengine" -> RateLimit.of(volcRatePerMinute, volcBurst, volcMaxConcurrent);
+                case "codesphere" -> RateLimit.of(codesphereRatePerMinute, codesphereBurst,
+                    codesphereMaxConcurrent);
+                default -> RateLimit.of(null, null, null);
+            };
+        }
+    }
+
+    /**
+     * AI 生成线路：服务商与模型
+     */
+    @Data
+    class AIRoute {
+        /**
+         * 服务商，见 {@link AIImageGenerator#supportAiProvider()}
+         */
+        private String provider;
+        /**
+         * 模型名称，为空时使用该服务商设置中的模型
+         */
+        private String model;
+    }
+
+    /**
+     * @param ratePerMinute 每分钟请求数
+     * @param burst 允许的突发请求数
+     * @param maxConcurrent 最大并发数
+     */
+    record RateLimit(double ratePerMinute, int burst, int maxConcurrent) {
+        static RateLimit of(Double ratePerMinute, Integer burst, Integer maxConcurrent) {
+            return new RateLimit(ratePerMinute == null ? 10 : ratePerMinute,
+                burst == null ? 2 : burst, maxConcurrent == null ? 2 : maxConcurrent);
+        }
     }
 }
@@ -0,0 +1,212 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.model.GeneratedImage;
+import cc.lik.coverImage.service.AIGenerationRouter;
+import cc.lik.coverImage.service.AIImageGenerator;
+import cc.lik.coverImage.service.AIRateLimiter;
+import cc.lik.coverImage.service.ImageTransferService;
+import cc.lik.coverImage.service.SettingConfigGetter;
+import cc.lik.coverImage.service.SettingConfigGetter.AIConfig;
+import cc.lik.coverImage.util.EndpointHealth;
+import cc.lik.coverImage.util.ImageUtils;
+import cc.lik.coverImage.util.ProviderThrottle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+
+/**
+ * AI 生成线路路由
+ *
+ * <p>线路由设置中的主服务商与备用线路组成。每条线路单独统计最近成功请求的 p50/p95 延迟与错误率，
+ * 请求优先发往得分最好的线路；尚无统计的线路保持设置中的顺序排在最后，只在前面的线路失败时启用。
+ * 线路失败、超时或被熔断时切换到下一条，所有尝试共享一个总超时。</p>
+ *
+ * <p>线路的超时与统计只覆盖服务商接口调用；生成成功后在线路切换之外转存一次，
+ * 附件存储变慢不会让线路被判定为失败。</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AIGenerationRouterImpl implements AIGenerationRouter, InitializingBean {
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final Duration OPEN_DURATION = Duration.ofMinutes(5);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final SettingConfigGetter settingConfigGetter;
+    private final AIRateLimiter aiRateLimiter;
+    private final ImageTransferService imageTransferService;
+    private final List<AIImageGenerator> aiImageGenerators;
+    private final Map<String, EndpointHealth> health = new ConcurrentHashMap<>();
+    private Map<String, AIImageGenerator> aiImageGeneratorMap;
+
+    @Override
+    public Mono<String> generate(Post post, String size, String style, boolean watermark) {
+        return settingConfigGetter.getAIConfig()
+            .switchIfEmpty(Mono.error(new IllegalStateException("无法获取 AI 配置")))
+            .flatMap(config -> {
+                var routes = rank(routesOf(config));
+                if (routes.isEmpty()) {
+                    return Mono.error(new IllegalStateException("未配置 AI 生成平台"));
+                }
+                log.info("AI 生成线路: {}", routes);
+                Duration total = secondsOf(config.getTotalTimeoutSeconds(), 300);
+                Duration attempt = secondsOf(config.getAttemptTimeoutSeconds(), 150);
+                long deadline = System.nanoTime() + total.toNanos();
+                var request = new Request(post, size, style, watermark, attempt, deadline);
+                return tryFrom(routes, 0, request, null)
+                    .timeout(total, Mono.error(() -> new IllegalStateException(
+                        "AI 封面图生成超过 " + total.toSeconds() + " 秒，已放弃")))
+                    .flatMap(image -> transfer(image, post));
+            });
+    }
+
+    /**
+     * 将生成的图片转存到附件存储；已落盘的图片转存后删除临时文件
+     */
+    private Mono<String> transfer(GeneratedImage image, Post post) {
+        return switch (image) {
+            case GeneratedImage.Remote remote -> imageTransferService.updateFile(remote.url(), post);
+            case GeneratedImage.Spooled spooled -> Mono.usingWhen(Mono.just(spooled.file()),
+                file -> imageTransferService.updateFile(
+                    DataBufferUtils.read(file, DefaultDataBufferFactory.sharedInstance, BUFFER_SIZE),
+                    post, spooled.filename(), spooled.mediaType()),
+                ImageUtils::deleteTempFile);
+        };
+    }
+
+    private Mono<GeneratedImage> tryFrom(List<Route> routes, int index, Request request,
+        Throwable lastError) {
+        if (index >= routes.size()) {
+            return Mono.error(lastError != null ? lastError
+                : new IllegalStateException("没有可用的 AI 生成线路"));
+        }
+        var route = routes.get(index);
+        var generator = aiImageGeneratorMap.get(route.provider());
+        if (generator == null) {
+            log.warn("未找到 AI 生成平台[{}]，跳过", route.provider());
+            return tryFrom(routes, index + 1, request,
+                new IllegalStateException("未找到对应的 AI 生成平台: " + route.provider()));
+        }
+        var routeHealth = healthOf(route);
+        if (!routeHealth.tryAcquire()) {
+            log.info("AI 生成线路 {} 已熔断，跳过", route);
+            return tryFrom(routes, index + 1, request,
+                new IllegalStateException("AI 生成线路 " + route + " 暂不可用"));
+        }
+        long remaining = request.deadline() - System.nanoTime();
+        if (remaining <= 0) {
+            routeHealth.onCancel();
+            return Mono.error(lastError != null ? lastError
+                : new IllegalStateException("AI 封面图生成已超时"));
+        }
+        Duration timeout = request.attemptTimeout().compareTo(Duration.ofNanos(remaining)) < 0
+            ? request.attemptTimeout() : Duration.ofNanos(remaining);
+        return aiRateLimiter.execute(route.provider(), () -> Mono.defer(() -> {
+                long start = System.nanoTime();
+                return generator.generateImage(request.post(), request.size(), request.style(),
+                        request.watermark(), route.model())
+                    .timeout(timeout, Mono.error(() -> new IllegalStateException(
+                        "AI 生成线路 " + route + " 超过 " + timeout.toSeconds() + " 秒未完成")))
+                    .doOnSuccess(image -> routeHealth.onSuccess(
+                        Duration.ofNanos(System.nanoTime() - start)))
+                    .doOnError(e -> routeHealth.onFailure());
+            }))
+            .contextWrite(CoverMetrics.route(route.provider(), route.model()))
+            .doOnCancel(routeHealth::onCancel)
+            .onErrorResume(e -> {
+                if (e instanceof ProviderThrottle.QueueTimeoutException) {
+                    // 只是排队未轮到，不计入线路的错误率
+                    routeHealth.onCancel();
+                }
+                log.warn("AI 生成线路 {} 失败: {}，尝试下一条", route, e.getMessage());
+                return tryFrom(routes, index + 1, request, e);
+            });
+    }
+
+    /**
+     * 主服务商在前，备用线路按设置顺序在后，重复的线路只保留一次
+     */
+    private static List<Route> routesOf(AIConfig config) {
+        var routes = new LinkedHashSet<Route>();
+        if (StringUtils.isNotBlank(config.getAiProvider())) {
+            routes.add(new Route(config.getAiProvider(), null));
+        }
+        if (config.getFallbackRoutes() != null) {
+            for (var route : config.getFallbackRoutes()) {
+                if (route != null && StringUtils.isNotBlank(route.getProvider())) {
+                    routes.add(new Route(route.getProvider(),
+                        StringUtils.trimToNull(route.getModel())));
+                }
+            }
+        }
+        return new ArrayList<>(routes);
+    }
+
+    /**
+     * 可用的线路在前，按得分升序；排序是稳定的，得分相同时保持设置中的顺序
+     */
+    private List<Route> rank(List<Route> routes) {
+        var ranked = new ArrayList<>(routes);
+        ranked.sort(Comparator.<Route, Boolean>comparing(route -> !healthOf(route).isAvailable())
+            .thenComparingDouble(this::scoreOf));
+        return ranked;
+    }
+
+    /**
+     * 成功请求的 p50 与 p95 平均值按错误率加权，越小越好；尚无成功记录的线路排在最后
+     */
+    private double scoreOf(Route route) {
+        var routeHealth = healthOf(route);
+        long p50 = routeHealth.percentileMillis(0.5);
+        long p95 = routeHealth.percentileMillis(0.95);
+        if (p95 == 0) {
+            return Double.MAX_VALUE;
+        }
+        return (p50 + p95) / 2.0 * (1 + 4 * routeHealth.errorRate());
+    }
+
+    private EndpointHealth healthOf(Route route) {
+        return health.computeIfAbsent(route.toString(),
+            key -> new EndpointHealth(FAILURE_THRESHOLD, OPEN_DURATION));
+    }
+
+    private static Duration secondsOf(Integer seconds, int defaultSeconds) {
+        return Duration.ofSeconds(seconds == null ? defaultSeconds : Math.max(1, seconds));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        this.aiImageGeneratorMap = this.aiImageGenerators.stream()
+            .collect(Collectors.toMap(AIImageGenerator::supportAiProvider, Function.identity()));
+    }
+
+    /**
+     * @param model 为空时使用服务商设置中的模型
+     */
+    private record Route(String provider, String model) {
+        @Override
+        public String toString() {
+            return model == null ? provider : provider + "/" + model;
+        }
+    }
+
+    private record Request(Post post, String size, String style, boolean watermark,
+                           Duration attemptTimeout, long deadline) {
+    }
+}
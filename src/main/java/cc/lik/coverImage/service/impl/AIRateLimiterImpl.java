@@ -0,0 +1,51 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.service.AIRateLimiter;
+import cc.lik.coverImage.service.SettingConfigGetter;
+import cc.lik.coverImage.util.ProviderThrottle;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * 每个 AI 服务商一个 {@link ProviderThrottle}，参数取自 AI 设置，设置变更后在下次调用时生效
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AIRateLimiterImpl implements AIRateLimiter {
+    private static final int MAX_QUEUED = 100;
+
+    private final SettingConfigGetter settingConfigGetter;
+    private final Map<String, ProviderThrottle> throttles = new ConcurrentHashMap<>();
+
+    @Override
+    public <T> Mono<T> execute(String provider, Supplier<Mono<T>> call) {
+        return settingConfigGetter.getAIConfig()
+            .flatMap(config -> {
+                var limits = limitsOf(config, provider);
+                var throttle = throttles.computeIfAbsent(provider,
+                    name -> new ProviderThrottle("AI 服务商[" + name + "]", limits));
+                throttle.update(limits);
+                if (throttle.queued() > 0) {
+                    log.info("AI 服务商[{}]排队中: {}，进行中: {}", provider, throttle.queued(),
+                        throttle.inFlight());
+                }
+                return throttle.execute(call);
+            });
+    }
+
+    private static ProviderThrottle.Limits limitsOf(SettingConfigGetter.AIConfig config,
+        String provider) {
+        var limit = config.rateLimitOf(provider);
+        int queueTimeout = config.getQueueTimeoutSeconds() == null ? 120
+            : Math.max(1, config.getQueueTimeoutSeconds());
+        return new ProviderThrottle.Limits(limit.ratePerMinute(), limit.burst(),
+            limit.maxConcurrent(), MAX_QUEUED, Duration.ofSeconds(queueTimeout));
+    }
+}
@@ -1,11 +1,14 @@
 package cc.lik.coverImage.service.impl;
 
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.config.UpstreamClients;
+import cc.lik.coverImage.model.GeneratedImage;
 import cc.lik.coverImage.service.AIImageGenerator;
-import cc.lik.coverImage.service.ImageTransferService;
 import cc.lik.coverImage.service.SettingConfigGetter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 import run.halo.app.content.PostContentService;
@@ -27,32 +30,49 @@ public abstract class AbstractAIImageGenerator implements AIImageGenerator {
     @Resource
     protected PostContentService postContentService;
     @Resource
-    protected ImageTransferService imageTransferService;
+    protected UpstreamClients upstreamClients;
     @Resource
-    protected WebClient.Builder webClientBuilder;
+    protected CoverMetrics coverMetrics;
     @Resource
     protected ObjectMapper objectMapper;
 
     @Override
-    public Mono<String> generateImage(Post post, String size, String style, boolean watermark) {
-        log.info("开始为文章[{}]生成 AI 封面图, 尺寸: {}, 风格: {}, 水印: {}",
-            post.getSpec().getTitle(), size, style, watermark);
+    public Mono<GeneratedImage> generateImage(Post post, String size, String style,
+        boolean watermark, String model) {
+        log.info("开始为文章[{}]生成 AI 封面图, 尺寸: {}, 风格: {}, 水印: {}, 模型: {}",
+            post.getSpec().getTitle(), size, style, watermark, model);
 
         return settingConfigGetter.getAIConfig()
             .switchIfEmpty(Mono.error(new IllegalStateException("无法获取 AI 配置")))
             .flatMap(config ->
                 buildPrompt(post, config, style)
-                    .flatMap(prompt -> doGenerateImage(config, prompt, size, watermark, post))
+                    .transform(coverMetrics.stage(CoverMetrics.STAGE_PROMPT_BUILD))
+                    .flatMap(prompt -> doGenerateImage(config,
+                        StringUtils.defaultIfBlank(model, defaultModel(config)), prompt, size,
+                        watermark))
             )
-            .doOnSuccess(url -> log.info("AI 封面图生成成功: {}", url))
+            .doOnSuccess(image -> log.info("AI 封面图生成成功: {}", image))
             .doOnError(e -> log.error("AI 封面图生成失败: {}", e.getMessage()));
     }
 
-    protected abstract Mono<String> doGenerateImage(SettingConfigGetter.AIConfig config, String prompt, String size, boolean watermark, Post post);
+    /**
+     * 当前服务商专用的 WebClient，连接在多次生成之间复用
+     */
+    protected WebClient webClient() {
+        return upstreamClients.aiProvider(supportAiProvider());
+    }
+
+    /**
+     * 服务商设置中的模型，未指定模型时使用
+     */
+    protected abstract String defaultModel(SettingConfigGetter.AIConfig config);
+
+    protected abstract Mono<GeneratedImage> doGenerateImage(SettingConfigGetter.AIConfig config, String model, String prompt, String size, boolean watermark);
 
     protected Mono<String> buildPrompt(Post post, SettingConfigGetter.AIConfig config, String style) {
         return postContentService.getHeadContent(post.getMetadata().getName())
             .switchIfEmpty(postContentService.getReleaseContent(post.getMetadata().getName()))
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_POST_FETCH))
             .map(contentWrapper -> {
                 String template = config.getPromptTemplate();
                 String title = post.getSpec().getTitle();
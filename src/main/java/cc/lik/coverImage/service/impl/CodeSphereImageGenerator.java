@@ -1,50 +1,49 @@
 package cc.lik.coverImage.service.impl;
 
+import cc.lik.coverImage.config.CoverMetrics;
 import cc.lik.coverImage.dto.CodeSphereRequest;
 import cc.lik.coverImage.dto.CodeSphereResponse;
-import cc.lik.coverImage.service.ImageTransferService;
+import cc.lik.coverImage.model.GeneratedImage;
 import cc.lik.coverImage.service.SettingConfigGetter.AIConfig;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.Base64;
+import cc.lik.coverImage.util.Base64FieldDecoder;
+import cc.lik.coverImage.util.ImageUtils;
 import java.util.List;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import run.halo.app.core.extension.content.Post;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CodeSphereImageGenerator extends AbstractAIImageGenerator {
 
-    private final ImageTransferService imageTransferService;
-    private final WebClient.Builder webClientBuilder;
-    private final ObjectMapper objectMapper;
-
     private static final String GENERATIONS_PATH = "/v1/images/generations";
+    private final DataBufferFactory dataBufferFactory = DefaultDataBufferFactory.sharedInstance;
 
     @Override
-    protected Mono<String> doGenerateImage(AIConfig config, String prompt, String size,
-        boolean watermark, Post post) {
+    protected String defaultModel(AIConfig config) {
+        return config.getModel();
+    }
+
+    @Override
+    protected Mono<GeneratedImage> doGenerateImage(AIConfig config, String model, String prompt,
+        String size, boolean watermark) {
         if (config.getApiKey() == null || config.getApiKey().isEmpty()) {
             return Mono.error(new IllegalStateException("未配置 API Key"));
         }
 
-        String model = config.getModel();
         if (isGeminiModel(model)) {
-            return callGeminiApi(config, prompt, model, size, post);
+            return callGeminiApi(config, prompt, model, size);
         } else {
             return callDoubaoApi(config, prompt, model, size, watermark)
-                .flatMap(imageUrl -> imageTransferService.updateFile(imageUrl, post));
+                .map(GeneratedImage.Remote::new);
         }
     }
 
@@ -83,9 +82,7 @@ public class CodeSphereImageGenerator extends AbstractAIImageGenerator {
         String apiUrl = config.getApiBaseUrl() + GENERATIONS_PATH;
         log.info("调用豆包 API: {}, 模型: {}, 尺寸: {}, 水印: {}", apiUrl, model, size, watermark);
 
-        WebClient webClient = webClientBuilder.build();
-
-        return webClient.post()
+        return webClient().post()
             .uri(apiUrl)
             .header(HttpHeaders.AUTHORIZATION, "Bearer " + config.getApiKey().trim())
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
@@ -116,14 +113,15 @@ public class CodeSphereImageGenerator extends AbstractAIImageGenerator {
                     }
                 }
                 throw new IllegalStateException("API 响应未包含图片 URL");
-            });
+            })
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_UPSTREAM_CALL));
     }
 
     /**
      * 调用 Gemini API
      */
-    private Mono<String> callGeminiApi(AIConfig config, String prompt, String model, String size,
-        Post post) {
+    private Mono<GeneratedImage> callGeminiApi(AIConfig config, String prompt, String model,
+        String size) {
         String aspectRatio = convertSizeToAspectRatio(size);
         boolean is2K = size != null && size.contains("2K");
 
@@ -145,9 +143,7 @@ public class CodeSphereImageGenerator extends AbstractAIImageGenerator {
             config.getApiBaseUrl() + "/v1beta/models/" + model + ":generateContent", model,
             aspectRatio, is2K);
 
-        WebClient webClient = webClientBuilder.build();
-
-        return webClient.post()
+        return webClient().post()
             .uri(apiUrl)
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
             .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
@@ -167,75 +163,31 @@ public class CodeSphereImageGenerator extends AbstractAIImageGenerator {
                         return Mono.error(
                             new IllegalStateException("Gemini API 服务器错误: " + errorBody));
                     }))
-            .bodyToMono(String.class)
-            .flatMap(responseBody -> {
-                try {
-                    JsonNode root = objectMapper.readTree(responseBody);
-                    // 解析 Gemini 响应格式
-                    JsonNode candidates = root.path("candidates");
-                    if (candidates.isArray() && !candidates.isEmpty()) {
-                        JsonNode content = candidates.get(0).path("content");
-                        JsonNode parts = content.path("parts");
-                        if (parts.isArray()) {
-                            for (JsonNode part : parts) {
-                                JsonNode inlineData = part.path("inlineData");
-                                if (!inlineData.isMissingNode()) {
-                                    String base64Data = inlineData.path("data").asText();
-                                    String mimeType =
-                                        inlineData.path("mimeType").asText("image/png");
-                                    if (base64Data != null && !base64Data.isEmpty()) {
-                                        log.info("Gemini 生成图片成功，mimeType: {}, 数据长度: {}",
-                                            mimeType, base64Data.length());
-                                        // 将 base64 转换为 DataBuffer 并上传
-                                        return uploadBase64Image(base64Data, mimeType, post);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    log.error("Gemini 响应解析失败: {}", responseBody);
-                    return Mono.error(new IllegalStateException("Gemini API 响应未包含图片"));
-                } catch (Exception e) {
-                    log.error("解析 Gemini 响应失败: {}", e.getMessage());
-                    return Mono.error(
-                        new IllegalStateException("解析 Gemini 响应失败: " + e.getMessage()));
+            .bodyToFlux(DataBuffer.class)
+            // 响应中的图片以 base64 内联，边读边解码，不在内存中保留完整响应
+            .transform(body -> Base64FieldDecoder.decode(body, "inlineData", "data", dataBufferFactory))
+            .switchOnFirst((first, image) -> {
+                if (!first.hasValue()) {
+                    return image.thenMany(Mono.<GeneratedImage>error(
+                        new IllegalStateException("Gemini API 响应未包含图片")));
                 }
-            });
-    }
-
-    /**
-     * 上传 base64 图片
-     */
-    private Mono<String> uploadBase64Image(String base64Data, String mimeType, Post post) {
-        try {
-            byte[] imageBytes = Base64.getDecoder().decode(base64Data);
-            DataBuffer dataBuffer = new DefaultDataBufferFactory().wrap(imageBytes);
-            Flux<DataBuffer> dataBufferFlux = Flux.just(dataBuffer);
-
-            // 根据 mimeType 确定文件扩展名
-            String extension = switch (mimeType) {
-                case "image/jpeg" -> ".jpg";
-                case "image/png" -> ".png";
-                case "image/gif" -> ".gif";
-                case "image/webp" -> ".webp";
-                default -> ".png";
-            };
-
-            String filename = "gemini-cover-" + System.currentTimeMillis() + extension;
-            MediaType mediaType = MediaType.parseMediaType(mimeType);
-
-            log.info("开始上传 Gemini 生成的图片: {}", filename);
-            return imageTransferService.updateFile(dataBufferFlux, post, filename, mediaType);
-        } catch (Exception e) {
-            log.error("Base64 图片解码失败: {}", e.getMessage());
-            return Mono.error(new IllegalStateException("Base64 图片解码失败: " + e.getMessage()));
-        }
+                MediaType mediaType = ImageUtils.detectMediaType(first.get())
+                    .orElse(MediaType.IMAGE_PNG);
+                String filename = "gemini-cover-" + System.currentTimeMillis()
+                    + ImageUtils.getFileExtensionFromMediaType(mediaType.toString());
+                log.info("Gemini 生成图片成功，解码到临时文件: {}", filename);
+                // 图片随响应一起返回，需在请求内读完；先写入临时文件，转存在线路切换之外进行
+                return ImageUtils.writeTempFile(image)
+                    .map(file -> new GeneratedImage.Spooled(file, filename, mediaType));
+            })
+            .next()
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_UPSTREAM_CALL));
     }
 
     /**
      * 将尺寸转换为 Gemini 支持的比例格式
      */
-    private String convertSizeToAspectRatio(String size) {
+    static String convertSizeToAspectRatio(String size) {
         if (size == null || size.isEmpty()) {
             return "16:9";
         }
@@ -294,7 +246,7 @@ public class CodeSphereImageGenerator extends AbstractAIImageGenerator {
         }
     }
 
-    private int gcd(int a, int b) {
+    private static int gcd(int a, int b) {
         return b == 0 ? a : gcd(b, a % b);
     }
 
@@ -0,0 +1,244 @@
+package cc.lik.coverImage.service.impl;
+
+import static run.halo.app.extension.index.query.QueryFactory.and;
+import static run.halo.app.extension.index.query.QueryFactory.equal;
+import static run.halo.app.extension.index.query.QueryFactory.greaterThan;
+import static run.halo.app.extension.index.query.QueryFactory.isNull;
+
+import cc.lik.coverImage.extension.CoverBackfill;
+import cc.lik.coverImage.service.CoverBackfillService;
+import cc.lik.coverImage.service.ImgService;
+import cc.lik.coverImage.service.SettingConfigGetter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.PageRequestImpl;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.extension.router.selector.FieldSelector;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoverBackfillServiceImpl implements CoverBackfillService, DisposableBean {
+    private static final int PAGE_SIZE = 50;
+
+    private final ReactiveExtensionClient client;
+    private final ImgService imgService;
+    private final SettingConfigGetter settingConfigGetter;
+
+    private final AtomicBoolean active = new AtomicBoolean();
+    private volatile Disposable subscription;
+
+    @Override
+    public Mono<CoverBackfill> start(boolean restart) {
+        if (!active.compareAndSet(false, true)) {
+            return getProgress();
+        }
+        return settingConfigGetter.getBasicConfig()
+            .map(config -> Math.max(1,
+                Objects.requireNonNullElse(config.getBackfillParallelism(), 2)))
+            .flatMap(parallelism -> updateStatus(status -> {
+                if (restart || status.getPhase() == CoverBackfill.Phase.COMPLETED) {
+                    log.info("从头开始补全封面图");
+                    var fresh = new CoverBackfill.Status();
+                    status.setCursor(fresh.getCursor());
+                    status.setProcessed(0);
+                    status.setSucceeded(0);
+                    status.setFailed(0);
+                    status.setSkipped(0);
+                    status.setActiveMillis(0);
+                    status.setPostsPerMinute(0);
+                    status.setStartTime(null);
+                    status.setFailures(fresh.getFailures());
+                }
+                var now = Instant.now();
+                if (status.getStartTime() == null) {
+                    status.setStartTime(now);
+                }
+                status.setPhase(CoverBackfill.Phase.RUNNING);
+                status.setParallelism(parallelism);
+                status.setLastCheckpointTime(now);
+                status.setMessage(null);
+            }))
+            .doOnNext(this::launch)
+            .doOnError(e -> active.set(false));
+    }
+
+    @Override
+    public Mono<Boolean> resumeIfInterrupted() {
+        return client.fetch(CoverBackfill.class, CoverBackfill.NAME)
+            .filter(backfill -> backfill.getStatusOrDefault().getPhase()
+                == CoverBackfill.Phase.RUNNING)
+            .filter(backfill -> active.compareAndSet(false, true))
+            .flatMap(backfill -> updateStatus(status -> status.setLastCheckpointTime(Instant.now()))
+                .doOnNext(latest -> {
+                    log.info("继续中断的封面图补全任务，检查点: {}", latest.getStatus().getCursor());
+                    launch(latest);
+                })
+                .doOnError(e -> active.set(false))
+                .thenReturn(true))
+            .defaultIfEmpty(false);
+    }
+
+    @Override
+    public Mono<CoverBackfill> stop() {
+        // 先写入 STOPPED 再中止订阅：中止后 active 即被释放，此时若仍是 RUNNING，
+        // 排队中的同步会经 resumeIfInterrupted 重新启动刚被停止的任务
+        return updateStatus(status -> {
+            if (status.getPhase() == CoverBackfill.Phase.RUNNING) {
+                status.setPhase(CoverBackfill.Phase.STOPPED);
+                status.setMessage("已手动停止，再次启动将从检查点继续");
+            }
+        }).doFinally(signal -> {
+            var current = subscription;
+            if (current != null) {
+                current.dispose();
+            }
+        });
+    }
+
+    @Override
+    public Mono<CoverBackfill> getProgress() {
+        return client.fetch(CoverBackfill.class, CoverBackfill.NAME)
+            .defaultIfEmpty(CoverBackfill.create());
+    }
+
+    private void launch(CoverBackfill backfill) {
+        var status = backfill.getStatus();
+        int parallelism = Math.max(1, status.getParallelism());
+        log.info("开始补全封面图，并发数: {}, 检查点: {}", parallelism, status.getCursor());
+        subscription = processFrom(status.getCursor(), parallelism)
+            .then(Mono.defer(() -> updateStatus(s -> {
+                s.setPhase(CoverBackfill.Phase.COMPLETED);
+                s.setMessage("补全完成");
+            })))
+            .onErrorResume(e -> {
+                log.error("封面图补全任务异常终止: {}", e.getMessage(), e);
+                return updateStatus(s -> {
+                    s.setPhase(CoverBackfill.Phase.FAILED);
+                    s.setMessage(e.getMessage());
+                });
+            })
+            .doFinally(signal -> active.set(false))
+            .subscribe(latest -> log.info("封面图补全任务结束: {}, 成功: {}, 失败: {}, 速率: {} 篇/分钟",
+                latest.getStatus().getPhase(), latest.getStatus().getSucceeded(),
+                latest.getStatus().getFailed(),
+                String.format("%.1f", latest.getStatus().getPostsPerMinute())));
+    }
+
+    /**
+     * 按名称升序分页，每页处理完成后写入检查点再读取下一页，内存中只保留一页文章
+     */
+    private Mono<Void> processFrom(String cursor, int parallelism) {
+        var pageRequest = PageRequestImpl.of(1, PAGE_SIZE, Sort.by("metadata.name"));
+        return client.listBy(Post.class, pageOptions(cursor), pageRequest)
+            .flatMap(page -> {
+                var posts = page.getItems();
+                if (posts.isEmpty()) {
+                    return Mono.empty();
+                }
+                String last = posts.get(posts.size() - 1).getMetadata().getName();
+                return Flux.fromIterable(posts)
+                    .flatMap(this::process, parallelism)
+                    .collectList()
+                    .flatMap(outcomes -> checkpoint(last, outcomes))
+                    .then(Mono.defer(() -> processFrom(last, parallelism)));
+            });
+    }
+
+    private Mono<Outcome> process(Post post) {
+        String postName = post.getMetadata().getName();
+        if (StringUtils.isNotBlank(post.getSpec().getCover())) {
+            return Mono.just(new Outcome(postName, true, null));
+        }
+        return imgService.coverImg(post)
+            .thenReturn(new Outcome(postName, false, null))
+            .onErrorResume(e -> {
+                log.warn("文章[{}]补全封面图失败: {}", postName, e.getMessage());
+                return Mono.just(new Outcome(postName, false,
+                    StringUtils.defaultIfBlank(e.getMessage(), e.getClass().getSimpleName())));
+            });
+    }
+
+    private Mono<CoverBackfill> checkpoint(String cursor, List<Outcome> outcomes) {
+        return updateStatus(status -> {
+            var now = Instant.now();
+            var last = status.getLastCheckpointTime() != null ? status.getLastCheckpointTime() : now;
+            status.setActiveMillis(status.getActiveMillis() + Duration.between(last, now).toMillis());
+            status.setLastCheckpointTime(now);
+            status.setCursor(cursor);
+            for (Outcome outcome : outcomes) {
+                if (outcome.skipped()) {
+                    status.setSkipped(status.getSkipped() + 1);
+                } else if (outcome.error() == null) {
+                    status.setSucceeded(status.getSucceeded() + 1);
+                } else {
+                    status.setFailed(status.getFailed() + 1);
+                    var failure = new CoverBackfill.Failure();
+                    failure.setPostName(outcome.postName());
+                    failure.setMessage(outcome.error());
+                    status.getFailures().add(failure);
+                }
+            }
+            var failures = status.getFailures();
+            if (failures.size() > CoverBackfill.MAX_RECORDED_FAILURES) {
+                failures.subList(0, failures.size() - CoverBackfill.MAX_RECORDED_FAILURES).clear();
+            }
+            status.setProcessed(status.getSucceeded() + status.getFailed());
+            status.setPostsPerMinute(status.getActiveMillis() > 0
+                ? status.getProcessed() * 60_000.0 / status.getActiveMillis() : 0);
+        }).doOnNext(latest -> log.info("封面图补全检查点: {}, 已处理: {}, 失败: {}, 速率: {} 篇/分钟",
+            cursor, latest.getStatus().getProcessed(), latest.getStatus().getFailed(),
+            String.format("%.1f", latest.getStatus().getPostsPerMinute())));
+    }
+
+    private ListOptions pageOptions(String cursor) {
+        var query = and(equal("spec.deleted", BooleanUtils.FALSE),
+            isNull("metadata.deletionTimestamp"));
+        if (cursor != null) {
+            query = and(query, greaterThan("metadata.name", cursor));
+        }
+        var listOptions = new ListOptions();
+        listOptions.setFieldSelector(FieldSelector.of(query));
+        return listOptions;
+    }
+
+    private Mono<CoverBackfill> updateStatus(Consumer<CoverBackfill.Status> mutator) {
+        return Mono.defer(() -> client.fetch(CoverBackfill.class, CoverBackfill.NAME)
+                .switchIfEmpty(Mono.defer(() -> client.create(CoverBackfill.create())))
+                .flatMap(backfill -> {
+                    mutator.accept(backfill.getStatusOrDefault());
+                    return client.update(backfill);
+                }))
+            .retryWhen(Retry.backoff(5, Duration.ofMillis(100))
+                .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+
+    @Override
+    public void destroy() {
+        var current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    private record Outcome(String postName, boolean skipped, String error) {
+    }
+}
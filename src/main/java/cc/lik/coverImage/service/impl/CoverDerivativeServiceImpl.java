@@ -0,0 +1,101 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.ImageWorkers;
+import cc.lik.coverImage.model.ImageFormat;
+import cc.lik.coverImage.service.CoverDerivativeService;
+import cc.lik.coverImage.util.ImageDecoder;
+import cc.lik.coverImage.util.ImageEncoder;
+import cc.lik.coverImage.util.ImageResizer;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.attachment.Attachment;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.extension.router.selector.LabelSelector;
+
+/**
+ * 在 {@link ImageWorkers} 的共用调度器上解码原图并并行生成各宽度的衍生图；srcset 随附件持久化，
+ * 重启后仍可按封面图地址查到
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoverDerivativeServiceImpl implements CoverDerivativeService {
+    private final ReactiveExtensionClient client;
+    private final ImageWorkers imageWorkers;
+
+    @Override
+    public Mono<List<Derivative>> render(byte[] source, List<Integer> widths,
+        ImageFormat format, float quality) {
+        if (widths.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        ImageFormat target = format.encodableOr(ImageFormat.JPEG);
+        return Mono.fromCallable(() -> ImageDecoder.decode(source, ImageDecoder.DEFAULT_MAX_PIXELS))
+            .subscribeOn(imageWorkers.scheduler())
+            .flatMapMany(image -> Flux.fromIterable(widths)
+                .filter(width -> width < image.getWidth())
+                .flatMapSequential(width -> Mono.fromCallable(
+                        () -> derive(image, width, target, quality))
+                    .subscribeOn(imageWorkers.scheduler())))
+            .collectList();
+    }
+
+    private Derivative derive(BufferedImage image, int width, ImageFormat format, float quality)
+        throws IOException {
+        int height = Math.max(1, Math.round(image.getHeight() * (float) width / image.getWidth()));
+        var scaled = ImageResizer.resize(image, width, height, format.hasAlpha(),
+            imageWorkers.rowPool());
+        return new Derivative(width, height, format, ImageEncoder.encode(scaled, format, quality));
+    }
+
+    @Override
+    public Mono<String> findSrcset(String imageUrl) {
+        if (StringUtils.isBlank(imageUrl)) {
+            return Mono.empty();
+        }
+        var listOptions = new ListOptions();
+        listOptions.setLabelSelector(LabelSelector.builder()
+            .eq(PERMALINK_LABEL, CoverDerivativeService.permalinkKey(imageUrl)).build());
+        return client.listAll(Attachment.class, listOptions, Sort.by("metadata.creationTimestamp"))
+            .filter(attachment -> attachment.getMetadata().getDeletionTimestamp() == null
+                && attachment.getStatus() != null
+                && imageUrl.equals(attachment.getStatus().getPermalink()))
+            .mapNotNull(attachment -> attachment.getMetadata().getAnnotations() == null ? null
+                : attachment.getMetadata().getAnnotations().get(SRCSET_ANNOTATION))
+            .filter(StringUtils::isNotBlank)
+            .next()
+            .onErrorResume(e -> {
+                log.warn("查询封面图附件的 srcset 失败: {}", e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    @Override
+    public void annotate(Post post, String srcset) {
+        Map<String, String> annotations = post.getMetadata().getAnnotations();
+        if (StringUtils.isBlank(srcset)) {
+            // 封面已更换，旧的衍生图不再对应
+            if (annotations != null) {
+                annotations.remove(SRCSET_ANNOTATION);
+            }
+            return;
+        }
+        if (annotations == null) {
+            annotations = new HashMap<>();
+            post.getMetadata().setAnnotations(annotations);
+        }
+        annotations.put(SRCSET_ANNOTATION, srcset);
+    }
+}
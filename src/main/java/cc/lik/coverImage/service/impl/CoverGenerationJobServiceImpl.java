@@ -0,0 +1,112 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.dto.CoverGenerationResponse;
+import cc.lik.coverImage.model.GenerationJob;
+import cc.lik.coverImage.model.GenerationStage;
+import cc.lik.coverImage.service.CoverGenerationJobService;
+import cc.lik.coverImage.service.CoverUpdateService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.extension.ReactiveExtensionClient;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoverGenerationJobServiceImpl implements CoverGenerationJobService, DisposableBean {
+    private final ReactiveExtensionClient client;
+    private final CoverUpdateService coverUpdateService;
+    private final CoverMetrics coverMetrics;
+
+    /**
+     * 已结束任务的保留时长，供控制台轮询最终结果
+     */
+    private static final Duration FINISHED_RETENTION = Duration.ofMinutes(10);
+
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    public GenerationJob submit(String postName, String type, String size, String style,
+        boolean watermark) {
+        evictExpired();
+        var created = new GenerationJob[1];
+        var job = jobs.compute(postName, (name, existing) -> {
+            if (existing != null && !existing.isFinished()) {
+                return existing;
+            }
+            created[0] = new GenerationJob(UUID.randomUUID().toString(), name, type);
+            return created[0];
+        });
+        if (created[0] == null) {
+            log.info("文章[{}]已有进行中的生成任务: {}", postName, job.getJobId());
+            return job;
+        }
+        log.info("提交封面图生成任务: {}, 文章: {}, 类型: {}", job.getJobId(), postName, type);
+        job.bind(run(job, size, style, watermark)
+            .subscribe(job::succeed, e -> {
+                log.error("封面图生成任务[{}]失败: {}", job.getJobId(), e.getMessage());
+                job.fail(e);
+            }));
+        return job;
+    }
+
+    private Mono<String> run(GenerationJob job, String size, String style, boolean watermark) {
+        String postName = job.getPostName();
+        String strategy = switch (job.getType()) {
+            case "firstPostImg", "customizeImg", "aiGenerated" -> job.getType();
+            default -> "randomImg";
+        };
+        return client.fetch(Post.class, postName)
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_POST_FETCH))
+            .switchIfEmpty(Mono.error(new IllegalArgumentException("文章不存在: " + postName)))
+            .doOnNext(post -> job.advance(GenerationStage.POST_FETCHED))
+            .flatMap(post -> {
+                log.info("开始为文章[{}]生成封面图，策略: {}", post.getSpec().getTitle(), strategy);
+                return coverUpdateService.generate(post, strategy, size, style, watermark,
+                    job::advance);
+            })
+            .doOnNext(imageUrl -> job.advance(GenerationStage.POST_UPDATED))
+            .transform(coverMetrics::pipeline)
+            .contextWrite(CoverMetrics.strategy(strategy));
+    }
+
+    @Override
+    public Optional<GenerationJob> findByPost(String postName) {
+        evictExpired();
+        return Optional.ofNullable(jobs.get(postName));
+    }
+
+    @Override
+    public Flux<CoverGenerationResponse> stream(String postName) {
+        return findByPost(postName)
+            .map(GenerationJob::events)
+            .orElseGet(() -> Flux.just(CoverGenerationResponse.builder()
+                .status("idle")
+                .message("暂无生成任务")
+                .build()));
+    }
+
+    private void evictExpired() {
+        jobs.values().removeIf(job -> job.isExpired(FINISHED_RETENTION));
+    }
+
+    @Override
+    public void destroy() {
+        jobs.values().forEach(job -> {
+            if (job.getSubscription() != null) {
+                job.getSubscription().dispose();
+            }
+        });
+        jobs.clear();
+    }
+}
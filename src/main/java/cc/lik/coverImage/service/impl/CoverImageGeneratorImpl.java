@@ -1,56 +1,61 @@
 package cc.lik.coverImage.service.impl;
 
+import cc.lik.coverImage.model.CoverDesign;
+import cc.lik.coverImage.model.CoverGradient;
+import cc.lik.coverImage.model.ImageFormat;
 import cc.lik.coverImage.service.CoverImageGenerator;
+import cc.lik.coverImage.service.CoverRasterizer;
 import cc.lik.coverImage.service.ImageTransferService;
+import cc.lik.coverImage.service.LogoService;
+import cc.lik.coverImage.service.SettingConfigGetter;
+import cc.lik.coverImage.util.SvgTemplate;
+import io.netty.buffer.PooledByteBufAllocator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.content.Post;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.ResourceLoader;
-import reactor.core.scheduler.Schedulers;
 import org.springframework.http.MediaType;
 import run.halo.app.infra.ExternalUrlSupplier;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.ArrayList;
-import java.util.Base64;
-import java.net.URL;
-import javax.imageio.ImageIO;
-import java.io.ByteArrayOutputStream;
-import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.Objects;
 import java.io.IOException;
-import java.util.Iterator;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class CoverImageGeneratorImpl implements CoverImageGenerator {
+public class CoverImageGeneratorImpl implements CoverImageGenerator, InitializingBean {
     private final ImageTransferService imageTransferService;
-    private final DataBufferFactory dataBufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final DataBufferFactory dataBufferFactory =
+        new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
     private final ResourceLoader resourceLoader;
     private final ExternalUrlSupplier externalUrlSupplier;
+    private final LogoService logoService;
+    private final SettingConfigGetter settingConfigGetter;
+    private final CoverRasterizer coverRasterizer;
 
-    private static final String DEFAULT_GRADIENT = "<stop offset=\"0%\" stop-color=\"#aee2ff\"/><stop offset=\"100%\" stop-color=\"#7fbbf7\"/>";
-    private static final int TARGET_WIDTH = 200;
-    private static final int TARGET_HEIGHT = 200;
     private static final int SVG_WIDTH = 1200;
     private static final int SVG_HEIGHT = 630;
+    private static final String TEMPLATE_LOCATION = "classpath:/static/cover.svg";
+    private static final Pattern GRADIENT_PATTERN = Pattern.compile("(\\d+)deg,\\s*(.*)");
+
+    private SvgTemplate coverTemplate;
 
     @Override
     public Mono<String> generateCoverImage(Post post) {
@@ -60,140 +65,113 @@ public class CoverImageGeneratorImpl implements CoverImageGenerator {
         String coverImgLogoAnnotation = annotations.getOrDefault("coverImgLogo", "");
         String color = annotations.getOrDefault("coverImgColor", "");
 
-        return getLogoBase64(coverImgLogoAnnotation)
-            .flatMap(logoBase64 -> generateSvg(title1, title2, logoBase64, color))
-            .flatMap(svg -> uploadSvg(svg, post));
+        return Mono.zip(getLogoBase64(coverImgLogoAnnotation), settingConfigGetter.getBasicConfig())
+            .flatMap(tuple -> {
+                var design = new CoverDesign(title1, title2, tuple.getT1(), parseGradient(color));
+                var config = tuple.getT2();
+                var format = ImageFormat.from(config.getCustomizeRenderFormat(), ImageFormat.SVG);
+                if (format == ImageFormat.SVG) {
+                    return uploadSvg(generateSvg(design), post);
+                }
+                return uploadBitmap(design, format, config, post);
+            });
     }
 
-    private Mono<String> generateSvg(String title1, String title2, String logoBase64, String color) {
-        return Mono.fromCallable(() -> {
-            Resource resource = resourceLoader.getResource("classpath:/static/cover.svg");
-            try (InputStream is = resource.getInputStream()) {
-                String svg = new String(is.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8);
-                Map<String, String> grad = parseGradient(color);
-                return svg.replace("${title1}", title1)
-                         .replace("${title2}", title2)
-                         .replace("${logoBase64}", logoBase64)
-                         .replace("${gradientTransform}", grad.get("gradientTransform"))
-                         .replace("${stops}", grad.get("stops"));
-            }
-        }).subscribeOn(Schedulers.boundedElastic());
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        Resource resource = resourceLoader.getResource(TEMPLATE_LOCATION);
+        try (InputStream is = resource.getInputStream()) {
+            String template = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+            this.coverTemplate = SvgTemplate.compile(template, Set.of("title1", "title2"));
+        }
     }
 
-    private Mono<String> uploadSvg(String svg, Post post) {
-        ByteArrayInputStream svgInputStream = new ByteArrayInputStream(svg.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-        InputStreamResource svgResource = new InputStreamResource(svgInputStream);
-        Flux<DataBuffer> dataBufferFlux = DataBufferUtils.read(svgResource, dataBufferFactory, 8192);
-        String uniqueFilename = "cover-" + System.currentTimeMillis() + ".svg";
-        return imageTransferService.updateFile(dataBufferFlux, post, uniqueFilename, MediaType.parseMediaType("image/svg+xml"));
+    private Flux<DataBuffer> generateSvg(CoverDesign design) {
+        return Mono.fromCallable(() -> coverTemplate.render(svgValues(design), dataBufferFactory))
+            .flux()
+            .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
     }
 
-    private Mono<String> getLogoBase64(String logoIdentifier) {
-        if (logoIdentifier == null || logoIdentifier.isEmpty()) {
-            return Mono.just("");
-        }
-
-        String fullLogoUrl = logoIdentifier.startsWith("http") ? 
-            logoIdentifier : externalUrlSupplier.getRaw() + logoIdentifier;
-
-        try {
-            URL url = new URL(fullLogoUrl);
-            return Mono.fromCallable(() -> {
-                BufferedImage originalImage = ImageIO.read(url);
-                if (originalImage == null) {
-                    return "";
-                }
-
-                BufferedImage resizedImage = resizeImage(originalImage);
-                String formatName = detectImageFormat(url);
-                return encodeToBase64(resizedImage, formatName);
-            }).subscribeOn(Schedulers.boundedElastic())
-              .onErrorResume(e -> {
-                  log.error("Failed to process logo image: {}", e.getMessage());
-                  return Mono.just("");
-              });
-        } catch (Exception e) {
-            log.error("Invalid logo URL: {}", e.getMessage());
-            return Mono.just("");
-        }
+    /**
+     * 封面模板 {@code cover.svg} 的占位符取值
+     */
+    static Map<String, String> svgValues(CoverDesign design) {
+        return Map.of(
+            "title1", design.title1(),
+            "title2", design.title2(),
+            "logoBase64", design.logoDataUri(),
+            "gradientTransform", design.gradient().toSvgTransform(SVG_WIDTH, SVG_HEIGHT),
+            "stops", design.gradient().toSvgStops());
     }
 
-    private BufferedImage resizeImage(BufferedImage originalImage) {
-        BufferedImage resizedImage = new BufferedImage(TARGET_WIDTH, TARGET_HEIGHT, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = resizedImage.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.drawImage(originalImage, 0, 0, TARGET_WIDTH, TARGET_HEIGHT, null);
-        g.dispose();
-        return resizedImage;
+    private Mono<String> uploadSvg(Flux<DataBuffer> svg, Post post) {
+        String uniqueFilename = "cover-" + System.currentTimeMillis() + ".svg";
+        return imageTransferService.updateFile(svg, post, uniqueFilename, MediaType.parseMediaType("image/svg+xml"));
     }
 
-    private String detectImageFormat(URL url) throws IOException {
-        try (ImageInputStream iis = ImageIO.createImageInputStream(url.openStream())) {
-            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
-            return readers.hasNext() ? readers.next().getFormatName() : "png";
+    /**
+     * 在服务端将封面栅格化为位图后上传，不依赖读者浏览器的字体
+     */
+    private Mono<String> uploadBitmap(CoverDesign design, ImageFormat format,
+        SettingConfigGetter.BasicConfig config, Post post) {
+        var actualFormat = format.encodableOr(ImageFormat.JPEG);
+        if (actualFormat != format) {
+            log.warn("当前环境不支持 {} 编码，改用 {}", format, actualFormat);
         }
+        int width = Objects.requireNonNullElse(config.getCustomizeRenderWidth(), SVG_WIDTH);
+        float quality = Objects.requireNonNullElse(config.getCustomizeRenderQuality(), 85) / 100f;
+        return coverRasterizer.rasterize(design, actualFormat, width, quality)
+            .flatMap(bytes -> {
+                String filename = "cover-" + System.currentTimeMillis() + actualFormat.getExtension();
+                return imageTransferService.updateFile(Flux.just(dataBufferFactory.wrap(bytes)), post,
+                    filename, actualFormat.getMediaType());
+            });
     }
 
-    private String encodeToBase64(BufferedImage image, String formatName) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(image, formatName, outputStream);
-        String base64String = Base64.getEncoder().encodeToString(outputStream.toByteArray());
-        MediaType mediaType = getMediaTypeByFormatName(formatName);
-        return String.format("data:%s;base64,%s", mediaType.toString(), base64String);
-    }
+    private Mono<String> getLogoBase64(String logoIdentifier) {
+        if (logoIdentifier == null || logoIdentifier.isEmpty()) {
+            return Mono.just("");
+        }
 
-    private MediaType getMediaTypeByFormatName(String formatName) {
-        return switch (formatName.toLowerCase()) {
-            case "png" -> MediaType.IMAGE_PNG;
-            case "jpg", "jpeg" -> MediaType.IMAGE_JPEG;
-            case "gif" -> MediaType.IMAGE_GIF;
-            case "bmp" -> MediaType.parseMediaType("image/bmp");
-            case "webp" -> MediaType.parseMediaType("image/webp");
-            default -> MediaType.APPLICATION_OCTET_STREAM;
-        };
+        String fullLogoUrl = logoIdentifier.startsWith("http") ? 
+            logoIdentifier : externalUrlSupplier.getRaw() + logoIdentifier;
+        return logoService.getLogoDataUri(fullLogoUrl);
     }
 
-    private Map<String, String> parseGradient(String css) {
-        Map<String, String> result = new java.util.HashMap<>();
+    /**
+     * 解析 CSS 线性渐变，如 {@code 135deg, #aee2ff 0%, #7fbbf7 100%}
+     */
+    static CoverGradient parseGradient(String css) {
         if (css == null || css.isEmpty()) {
-            result.put("gradientTransform", "");
-            result.put("stops", DEFAULT_GRADIENT);
-            return result;
+            return CoverGradient.DEFAULT;
         }
 
         try {
-            Pattern p = Pattern.compile("(\\d+)deg,\\s*(.*)");
-            Matcher m = p.matcher(css);
+            Matcher m = GRADIENT_PATTERN.matcher(css);
             if (m.find()) {
                 int angle = Integer.parseInt(m.group(1));
                 String stopsStr = m.group(2);
-                String gradientTransform = String.format("gradientTransform=\"rotate(%d %d %d)\"", 
-                    angle, SVG_WIDTH / 2, SVG_HEIGHT / 2);
-                result.put("gradientTransform", gradientTransform);
-                result.put("stops", String.join("", parseStops(stopsStr)));
-                return result;
+                return new CoverGradient(angle, parseStops(stopsStr));
             }
         } catch (Exception e) {
             log.error("Failed to parse gradient: {}", css);
         }
 
-        result.put("gradientTransform", "");
-        result.put("stops", DEFAULT_GRADIENT);
-        return result;
+        return CoverGradient.DEFAULT;
     }
 
-    private ArrayList<String> parseStops(String stopsStr) {
+    static List<CoverGradient.Stop> parseStops(String stopsStr) {
         String[] stopsArr = stopsStr.split(",");
-        ArrayList<String> stopsList = new ArrayList<>();
+        List<CoverGradient.Stop> stopsList = new ArrayList<>();
         for (String stop : stopsArr) {
             String[] parts = stop.trim().split(" ");
             if (parts.length == 2) {
-                stopsList.add(String.format("<stop offset=\"%s\" stop-color=\"%s\"/>", parts[1], parts[0]));
+                stopsList.add(new CoverGradient.Stop(parts[1], parts[0]));
             } else if (parts.length == 1) {
-                stopsList.add(String.format("<stop offset=\"%d%%\" stop-color=\"%s\"/>", 
-                    (int)(100.0 * stopsList.size()/(stopsArr.length-1)), parts[0]));
+                stopsList.add(new CoverGradient.Stop(
+                    (int)(100.0 * stopsList.size()/(stopsArr.length-1)) + "%", parts[0]));
             }
         }
         return stopsList;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
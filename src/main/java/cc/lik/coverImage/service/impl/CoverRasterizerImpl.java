@@ -0,0 +1,286 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.ImageWorkers;
+import cc.lik.coverImage.model.CoverDesign;
+import cc.lik.coverImage.model.CoverGradient;
+import cc.lik.coverImage.model.ImageFormat;
+import cc.lik.coverImage.service.CoverRasterizer;
+import cc.lik.coverImage.util.ImageEncoder;
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.LinearGradientPaint;
+import java.awt.MultipleGradientPaint;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ConvolveOp;
+import java.awt.image.Kernel;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.ImageIO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * 基于 Java2D 的封面栅格化，版式与 static/cover.svg 保持一致
+ *
+ * <p>画布按尺寸与像素类型池化复用，绘制在 {@link ImageWorkers} 的共用调度器上进行。</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoverRasterizerImpl implements CoverRasterizer, DisposableBean {
+    private static final int BASE_WIDTH = 1200;
+    private static final int BASE_HEIGHT = 630;
+    private static final int MIN_WIDTH = 200;
+    private static final int MAX_WIDTH = 2400;
+    private static final int POOLED_CANVASES = 4;
+    private static final int SHADOW_SCALE = 4;
+    private static final float FONT_SIZE = 210f;
+    private static final Color SHADOW_COLOR = new Color(0, 0, 0, 128);
+    private static final List<String> PREFERRED_FONTS = List.of("DouyinSansBold",
+        "Noto Sans CJK SC", "Source Han Sans SC", "WenQuanYi Micro Hei", "Microsoft YaHei",
+        "PingFang SC");
+
+    private final ImageWorkers imageWorkers;
+    private final Map<CanvasKey, BlockingQueue<BufferedImage>> canvases =
+        new ConcurrentHashMap<>();
+    private final String fontFamily = resolveFontFamily();
+
+    @Override
+    public Mono<byte[]> rasterize(CoverDesign design, ImageFormat format, int width,
+        float quality) {
+        if (format == ImageFormat.SVG) {
+            return Mono.error(new IllegalArgumentException("SVG 无需栅格化"));
+        }
+        return Mono.fromCallable(() -> render(design, format, width, quality))
+            .subscribeOn(imageWorkers.scheduler());
+    }
+
+    private byte[] render(CoverDesign design, ImageFormat format, int requestedWidth,
+        float quality) throws IOException {
+        int width = Math.clamp(requestedWidth, MIN_WIDTH, MAX_WIDTH);
+        int height = Math.round(width * (float) BASE_HEIGHT / BASE_WIDTH);
+        var key = new CanvasKey(width, height,
+            format.hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        var canvas = borrow(key);
+        try {
+            var logo = decodeLogo(design.logoDataUri());
+            var g = canvas.createGraphics();
+            try {
+                // 复用的画布残留上一张封面，半透明背景下会透出来，绘制前先清空
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, width, height);
+                g.setComposite(AlphaComposite.SrcOver);
+                applyQualityHints(g);
+                g.scale(width / (double) BASE_WIDTH, height / (double) BASE_HEIGHT);
+                paintBackground(g, design.gradient());
+                g.drawImage(renderShadow(design, logo), 0, 0, BASE_WIDTH, BASE_HEIGHT, null);
+                paintContent(g, design, logo, Color.WHITE);
+            } finally {
+                g.dispose();
+            }
+            return ImageEncoder.encode(canvas, format, quality);
+        } finally {
+            release(key, canvas);
+        }
+    }
+
+    private void paintBackground(Graphics2D g, CoverGradient gradient) {
+        var stops = normalizeStops(gradient.stops());
+        var paint = new LinearGradientPaint(new Point2D.Float(0, 0),
+            new Point2D.Float(BASE_WIDTH, BASE_HEIGHT), stops.fractions(), stops.colors(),
+            MultipleGradientPaint.CycleMethod.NO_CYCLE, MultipleGradientPaint.ColorSpaceType.SRGB,
+            gradient.angle() == null ? new AffineTransform()
+                : AffineTransform.getRotateInstance(Math.toRadians(gradient.angle()),
+                    BASE_WIDTH / 2.0, BASE_HEIGHT / 2.0));
+        g.setPaint(paint);
+        g.fillRect(0, 0, BASE_WIDTH, BASE_HEIGHT);
+    }
+
+    /**
+     * 近似 feDropShadow(dy=4, stdDeviation=15)：在缩小的图层上绘制剪影并模糊，再放大叠加
+     */
+    private BufferedImage renderShadow(CoverDesign design, BufferedImage logo) {
+        var layer = new BufferedImage(BASE_WIDTH / SHADOW_SCALE, BASE_HEIGHT / SHADOW_SCALE,
+            BufferedImage.TYPE_INT_ARGB);
+        var g = layer.createGraphics();
+        try {
+            applyQualityHints(g);
+            g.scale(1.0 / SHADOW_SCALE, 1.0 / SHADOW_SCALE);
+            g.translate(0, 4);
+            paintContent(g, design, logo, Color.BLACK);
+            g.setComposite(AlphaComposite.SrcIn);
+            g.setColor(SHADOW_COLOR);
+            g.fillRect(0, -4, BASE_WIDTH, BASE_HEIGHT);
+        } finally {
+            g.dispose();
+        }
+        float[] kernel = new float[25];
+        Arrays.fill(kernel, 1f / kernel.length);
+        var blur = new ConvolveOp(new Kernel(5, 5, kernel), ConvolveOp.EDGE_NO_OP, null);
+        return blur.filter(blur.filter(layer, null), null);
+    }
+
+    private void paintContent(Graphics2D g, CoverDesign design, BufferedImage logo,
+        Color textColor) {
+        g.setFont(new Font(fontFamily, Font.BOLD, 1).deriveFont(FONT_SIZE));
+        g.setColor(textColor);
+        FontMetrics metrics = g.getFontMetrics();
+        // dominant-baseline="middle"
+        float baseline = 350 + (metrics.getAscent() - metrics.getDescent()) / 2f;
+        String title1 = StringUtils.defaultString(design.title1());
+        String title2 = StringUtils.defaultString(design.title2());
+        g.drawString(title1, 560 - metrics.stringWidth(title1), baseline);
+        g.drawString(title2, 640, baseline);
+        if (logo != null) {
+            // 与 SVG image 默认的 xMidYMid meet 一致：等比缩放并在 200x200 区域内居中
+            double ratio = Math.min(200.0 / logo.getWidth(), 200.0 / logo.getHeight());
+            int width = (int) Math.round(logo.getWidth() * ratio);
+            int height = (int) Math.round(logo.getHeight() * ratio);
+            g.drawImage(logo, 500 + (200 - width) / 2, 230 + (200 - height) / 2, width, height,
+                null);
+        }
+    }
+
+    private BufferedImage decodeLogo(String dataUri) {
+        if (StringUtils.isBlank(dataUri) || !dataUri.contains(",")) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getDecoder().decode(dataUri.substring(dataUri.indexOf(',') + 1));
+            return ImageIO.read(new ByteArrayInputStream(bytes));
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("解析 Logo 失败，栅格化时忽略 Logo: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void applyQualityHints(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+            RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+            RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    }
+
+    /**
+     * LinearGradientPaint 要求位置严格递增且至少两个色标
+     */
+    private static GradientStops normalizeStops(List<CoverGradient.Stop> stops) {
+        var source = stops == null || stops.isEmpty() ? CoverGradient.DEFAULT.stops() : stops;
+        if (source.size() == 1) {
+            source = List.of(new CoverGradient.Stop("0%", source.getFirst().color()),
+                new CoverGradient.Stop("100%", source.getFirst().color()));
+        }
+        float[] fractions = new float[source.size()];
+        Color[] colors = new Color[source.size()];
+        float previous = -1f;
+        for (int i = 0; i < source.size(); i++) {
+            var stop = source.get(i);
+            float fraction = Math.clamp(parseOffset(stop.offset(), i, source.size()), 0f, 1f);
+            if (fraction <= previous) {
+                fraction = Math.min(1f, previous + 0.0001f);
+            }
+            fractions[i] = fraction;
+            colors[i] = parseColor(stop.color());
+            previous = fraction;
+        }
+        return new GradientStops(fractions, colors);
+    }
+
+    private static float parseOffset(String offset, int index, int count) {
+        try {
+            if (offset.endsWith("%")) {
+                return Float.parseFloat(offset.substring(0, offset.length() - 1)) / 100f;
+            }
+            return Float.parseFloat(offset);
+        } catch (RuntimeException e) {
+            return count > 1 ? index / (float) (count - 1) : 0f;
+        }
+    }
+
+    /**
+     * 解析 #rgb、#rrggbb、#rrggbbaa、rgb() 与 rgba()，其余按灰色处理
+     */
+    private static Color parseColor(String css) {
+        String color = StringUtils.trimToEmpty(css).toLowerCase();
+        try {
+            if (color.startsWith("#")) {
+                String hex = color.substring(1);
+                if (hex.length() == 3) {
+                    hex = "" + hex.charAt(0) + hex.charAt(0) + hex.charAt(1) + hex.charAt(1)
+                        + hex.charAt(2) + hex.charAt(2);
+                }
+                if (hex.length() == 6) {
+                    return new Color(Integer.parseInt(hex, 16));
+                }
+                if (hex.length() == 8) {
+                    long rgba = Long.parseLong(hex, 16);
+                    return new Color((int) (rgba >> 24) & 0xff, (int) (rgba >> 16) & 0xff,
+                        (int) (rgba >> 8) & 0xff, (int) rgba & 0xff);
+                }
+            } else if (color.startsWith("rgb")) {
+                String[] parts = color.substring(color.indexOf('(') + 1, color.indexOf(')'))
+                    .split("[,\\s/]+");
+                int alpha = parts.length > 3 ? Math.round(Float.parseFloat(parts[3]) * 255) : 255;
+                return new Color(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]), Math.clamp(alpha, 0, 255));
+            }
+        } catch (RuntimeException e) {
+            log.debug("无法解析颜色: {}", css);
+        }
+        return Color.GRAY;
+    }
+
+    private static String resolveFontFamily() {
+        Set<String> available = Set.of(GraphicsEnvironment.getLocalGraphicsEnvironment()
+            .getAvailableFontFamilyNames());
+        return PREFERRED_FONTS.stream()
+            .filter(available::contains)
+            .findFirst()
+            .orElse(Font.SANS_SERIF);
+    }
+
+    private BufferedImage borrow(CanvasKey key) {
+        var pooled = pool(key).poll();
+        return pooled != null ? pooled : new BufferedImage(key.width(), key.height(), key.type());
+    }
+
+    private void release(CanvasKey key, BufferedImage canvas) {
+        pool(key).offer(canvas);
+    }
+
+    private BlockingQueue<BufferedImage> pool(CanvasKey key) {
+        return canvases.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(POOLED_CANVASES));
+    }
+
+    @Override
+    public void destroy() {
+        canvases.clear();
+    }
+
+    private record CanvasKey(int width, int height, int type) {
+    }
+
+    private record GradientStops(float[] fractions, Color[] colors) {
+    }
+}
@@ -0,0 +1,85 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.model.GenerationStage;
+import cc.lik.coverImage.service.CoverDerivativeService;
+import cc.lik.coverImage.service.CoverUpdateService;
+import cc.lik.coverImage.service.ImageService;
+import cc.lik.coverImage.util.SingleFlight;
+import java.time.Duration;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import run.halo.app.core.extension.content.Post;
+import run.halo.app.extension.ReactiveExtensionClient;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoverUpdateServiceImpl implements CoverUpdateService, DisposableBean {
+    private final ReactiveExtensionClient client;
+    private final ImageService imageService;
+    private final CoverDerivativeService coverDerivativeService;
+    private final CoverMetrics coverMetrics;
+    private final SingleFlight<FlightKey, String> flights = new SingleFlight<>();
+
+    @Override
+    public Mono<String> generate(Post post, String strategy, String size, String style,
+        boolean watermark, Consumer<GenerationStage> progress) {
+        String postName = post.getMetadata().getName();
+        // 只有 AI 生成使用尺寸、风格与水印参数
+        var key = "aiGenerated".equals(strategy)
+            ? new FlightKey(postName, strategy, size, style, watermark)
+            : new FlightKey(postName, strategy, null, null, false);
+        if (flights.isInFlight(key)) {
+            log.info("文章[{}]已有相同参数的封面图生成进行中，等待其结果", post.getSpec().getTitle());
+        }
+        return flights.execute(key, () -> (switch (strategy) {
+                case "randomImg" -> imageService.processRandomImage(post);
+                case "firstPostImg" -> imageService.processFirstPostImage(post);
+                case "customizeImg" -> imageService.processCustomizeImage(post);
+                case "aiGenerated" -> imageService.processAIGeneratedImage(post, size, style, watermark);
+                default -> Mono.<String>error(new IllegalArgumentException("未找到对应的图片处理策略: " + strategy));
+            })
+            .switchIfEmpty(Mono.error(new IllegalStateException("未生成封面图")))
+            .doOnNext(imageUrl -> progress.accept(GenerationStage.IMAGE_READY))
+            .flatMap(imageUrl -> setCover(postName, imageUrl)));
+    }
+
+    /**
+     * 与编辑器保存等操作发生版本冲突时只重试这一步，不重新生成图片
+     */
+    @Override
+    public Mono<String> setCover(String postName, String imageUrl) {
+        return coverDerivativeService.findSrcset(imageUrl)
+            .defaultIfEmpty("")
+            .flatMap(srcset -> Mono.defer(() -> client.fetch(Post.class, postName))
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("文章不存在: " + postName)))
+                .flatMap(latestPost -> {
+                    latestPost.getSpec().setCover(imageUrl);
+                    coverDerivativeService.annotate(latestPost, srcset);
+                    return client.update(latestPost)
+                        .transform(coverMetrics.stage(CoverMetrics.STAGE_POST_UPDATE));
+                })
+                .retryWhen(Retry.backoff(3, Duration.ofMillis(200))
+                    .filter(throwable -> throwable.getMessage() != null
+                        && throwable.getMessage().contains("Version does not match"))
+                    .doBeforeRetry(retrySignal ->
+                        log.warn("更新文章封面图时发生版本冲突，正在进行第{}次重试", retrySignal.totalRetries() + 1))))
+            .doOnSuccess(p -> log.info("文章[{}]封面图更新成功", p.getSpec().getTitle()))
+            .thenReturn(imageUrl);
+    }
+
+    @Override
+    public void destroy() {
+        flights.dispose();
+    }
+
+    private record FlightKey(String postName, String strategy, String size, String style,
+                             boolean watermark) {
+    }
+}
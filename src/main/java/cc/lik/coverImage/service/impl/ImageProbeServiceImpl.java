@@ -0,0 +1,116 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.UpstreamClients;
+import cc.lik.coverImage.model.ImageInfo;
+import cc.lik.coverImage.service.ImageProbeService;
+import cc.lik.coverImage.util.ImageHeaderParser;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import run.halo.app.infra.ExternalUrlSupplier;
+
+/**
+ * 通过 Range 请求读取图片文件头
+ *
+ * <p>上游不支持 Range 时会返回完整内容，此时读到足够的字节后立即取消订阅并关闭连接。
+ * JPEG 的尺寸位于 EXIF 等段之后，因此最多读取 {@link #MAX_HEADER_BYTES}，多数格式在前几十个字节内即可得出结果。</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageProbeServiceImpl implements ImageProbeService {
+    private static final int INITIAL_BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_HEADER_BYTES = 64 * 1024;
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(8);
+
+    private final UpstreamClients upstreamClients;
+    private final ExternalUrlSupplier externalUrlSupplier;
+
+    @Override
+    public Mono<ImageInfo> probe(String url) {
+        return Mono.fromSupplier(() -> resolve(url))
+            .flatMap(uri -> upstreamClients.download().get()
+                .uri(uri)
+                .header(HttpHeaders.RANGE, "bytes=0-" + (MAX_HEADER_BYTES - 1))
+                .header(HttpHeaders.USER_AGENT, "curl/8.12.1")
+                .header(HttpHeaders.ACCEPT, "image/*,*/*;q=0.8")
+                .exchangeToMono(response -> {
+                    if (response.statusCode().isError()) {
+                        return response.releaseBody().then(Mono.error(new IllegalStateException(
+                            "探测图片失败，状态码: " + response.statusCode())));
+                    }
+                    var header = new HeaderBuffer();
+                    return response.bodyToFlux(DataBuffer.class)
+                        .<ImageInfo>handle((buffer, sink) -> {
+                            try {
+                                header.append(buffer);
+                            } finally {
+                                DataBufferUtils.release(buffer);
+                            }
+                            try {
+                                var info = header.parse();
+                                if (info.isPresent()) {
+                                    sink.next(info.get());
+                                    sink.complete();
+                                } else if (header.isFull()) {
+                                    sink.error(new IllegalStateException("文件头中未找到图片尺寸"));
+                                }
+                            } catch (IllegalArgumentException e) {
+                                sink.error(e);
+                            }
+                        })
+                        .next()
+                        .switchIfEmpty(Mono.error(() -> new IllegalStateException("文件头中未找到图片尺寸")));
+                }))
+            .timeout(PROBE_TIMEOUT)
+            .doOnNext(info -> log.debug("探测图片 {}: {}", url, info))
+            .doOnError(e -> log.debug("探测图片失败 {}: {}", url, e.getMessage()));
+    }
+
+    /**
+     * 站内相对路径与协议相对地址转换为绝对地址
+     */
+    private URI resolve(String url) {
+        if (url.startsWith("//")) {
+            return URI.create("https:" + url);
+        }
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            return URI.create(url);
+        }
+        return URI.create(externalUrlSupplier.getRaw().toString()).resolve(url);
+    }
+
+    private static final class HeaderBuffer {
+        private byte[] bytes = new byte[INITIAL_BUFFER_BYTES];
+        private int length;
+
+        void append(DataBuffer buffer) {
+            int count = Math.min(buffer.readableByteCount(), MAX_HEADER_BYTES - length);
+            if (count <= 0) {
+                return;
+            }
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.min(MAX_HEADER_BYTES,
+                    Math.max(bytes.length * 2, length + count)));
+            }
+            buffer.read(bytes, length, count);
+            length += count;
+        }
+
+        Optional<ImageInfo> parse() {
+            return ImageHeaderParser.parse(bytes, length);
+        }
+
+        boolean isFull() {
+            return length >= MAX_HEADER_BYTES;
+        }
+    }
+}
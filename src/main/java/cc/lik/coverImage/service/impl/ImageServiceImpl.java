@@ -1,41 +1,37 @@
 package cc.lik.coverImage.service.impl;
 
+import cc.lik.coverImage.config.CoverMetrics;
 import cc.lik.coverImage.constant.ImageConstants;
+import cc.lik.coverImage.model.ImageInfo;
 import cc.lik.coverImage.model.ImageType;
-import cc.lik.coverImage.service.AIImageGenerator;
+import cc.lik.coverImage.service.AIGenerationRouter;
 import cc.lik.coverImage.service.CoverImageGenerator;
+import cc.lik.coverImage.service.ImageProbeService;
 import cc.lik.coverImage.service.ImageService;
+import cc.lik.coverImage.service.ImageService.NoCoverCandidateException;
 import cc.lik.coverImage.service.ImageTransferService;
+import cc.lik.coverImage.service.RandomImageService;
 import cc.lik.coverImage.service.SettingConfigGetter;
+import cc.lik.coverImage.util.ImageCandidateScanner;
 import cc.lik.coverImage.util.ImageUtils;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import run.halo.app.content.PostContentService;
@@ -45,86 +41,24 @@ import run.halo.app.extension.ReactiveExtensionClient;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class ImageServiceImpl implements ImageService, InitializingBean {
+public class ImageServiceImpl implements ImageService {
     private final SettingConfigGetter settingConfigGetter;
     private final PostContentService postContentService;
     private final ImageTransferService imageTransferService;
-    private final WebClient.Builder webClientBuilder;
-    private final ObjectMapper objectMapper;
+    private final RandomImageService randomImageService;
+    private final ImageProbeService imageProbeService;
+    private final AIGenerationRouter aiGenerationRouter;
+    private final CoverMetrics coverMetrics;
     private final CoverImageGenerator coverImageGenerator;
-    private Map<String, AIImageGenerator> aiImageGeneratorMap;
-    private final List<AIImageGenerator> aiImageGenerators;
     private final ReactiveExtensionClient client;
 
-    private static final MediaType TEXT_JSON = MediaType.parseMediaType("text/json;charset=UTF-8");
-    private static final String API_ACG = "https://www.dmoe.cc/random.php?return=json";
-    private static final String API_BING = "https://api.xsot.cn/bing/?quality=1920x1080&mkt=zh-cn";
-    private static final String API_4K = "https://api.52vmy.cn/api/img/tu/pc";
     private final DataBufferFactory dataBufferFactory = DefaultDataBufferFactory.sharedInstance;
     private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_IMAGE_CANDIDATES = 10;
+    private static final int PROBE_CONCURRENCY = 4;
     @Override
     public Mono<String> processRandomImage(Post post) {
-        log.info("开始处理随机图片，文章标题: {}", post.getSpec().getTitle());
-        return settingConfigGetter.getBasicConfig()
-            .switchIfEmpty(Mono.error(new IllegalStateException("无法获取基本配置")))
-            .flatMap(config -> {
-                String randomType = config.getRandomType();
-                log.info("获取到随机图片类型配置: {}", randomType);
-                if (randomType == null || randomType.isEmpty()) {
-                    log.error("随机图片类型未配置");
-                    return Mono.error(new IllegalStateException("未配置随机图片类型"));
-                }
-
-                String apiUrl = switch (randomType) {
-                    case "acg" -> API_ACG;
-                    case "all4k" -> API_4K;
-                    default -> API_BING;
-                };
-                log.info("选择API地址: {}", apiUrl);
-
-                WebClient webClient = webClientBuilder.build();
-                log.info("开始请求API获取图片");
-                return webClient.get()
-                    .uri(apiUrl)
-                    .accept(TEXT_JSON)
-                    .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-                    .header("Accept", "application/json, text/plain, */*")
-                    .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
-                    .header("Connection", "keep-alive")
-                    .header("Cache-Control", "no-cache")
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .doOnNext(response -> log.info("API响应数据: {}", response))
-                    .flatMap(jsonStr -> {
-                        try {
-                            JsonNode json = objectMapper.readTree(jsonStr);
-                            String imgUrl;
-
-                            // 根据不同的 API 响应格式解析图片 URL
-                            if (apiUrl.contains("52vmy") || apiUrl.contains("dmoe.cc")) {
-                                if (json.get("code").asInt() != 200) {
-                                    return Mono.error(new IllegalStateException("获取图片失败: " + json.get("msg").asText()));
-                                }
-                                imgUrl = json.has("imgurl") ? json.get("imgurl").asText() : json.get("url").asText();
-                                log.info("从 {} 获取到图片URL: {}", apiUrl, imgUrl);
-                            }else if (apiUrl.contains("bing")) {
-                                imgUrl = json.get("data").get("image").asText();
-                                log.info("从 {} 获取到图片URL: {}", apiUrl, imgUrl);
-                            } else {
-                                return Mono.error(new IllegalStateException("不支持的随机图片类型"));
-                            }
-
-                            // 使用带有请求头的WebClient来下载图片
-                            return imageTransferService.updateFile(imgUrl,post)
-                                .doOnSuccess(url -> log.info("图片转存成功: {}", url))
-                                .doOnError(e -> log.error("图片转存失败: {}", e.getMessage()));
-                        } catch (Exception e) {
-                            log.error("解析JSON响应失败: {}", e.getMessage(), e);
-                            return Mono.error(e);
-                        }
-                    });
-            })
-            .doOnError(e -> log.error("处理随机图片过程中发生错误: {}", e.getMessage(), e));
+        return randomImageService.take(post);
     }
 
     @Override
@@ -135,6 +69,7 @@ public class ImageServiceImpl implements ImageService, InitializingBean {
         // 优先获取草稿内容，如果没有再获取已发布内容
         return postContentService.getHeadContent(postName)
             .switchIfEmpty(postContentService.getReleaseContent(postName))
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_POST_FETCH))
             .doOnNext(contentWrapper -> {
                 log.info("获取到文章内容，类型: {}, 内容长度: {}", 
                     contentWrapper.getRawType(), 
@@ -149,27 +84,68 @@ public class ImageServiceImpl implements ImageService, InitializingBean {
                     return Mono.error(new IllegalStateException("文章内容为空"));
                 }
                 
-                String firstImgSrc;
-                if ("markdown".equals(rawType)) {
-                    firstImgSrc = extractMarkdownImage(content);
-                    log.info("Markdown 格式，提取到图片: {}", firstImgSrc);
-                } else {
-                    firstImgSrc = extractHtmlImage(content);
-                    log.info("HTML 格式，提取到图片: {}", firstImgSrc);
-                }
+                List<String> candidates = ImageCandidateScanner.all(content,
+                    "markdown".equals(rawType), MAX_IMAGE_CANDIDATES);
+                log.info("{} 格式，提取到 {} 张候选图片", rawType, candidates.size());
                 
-                if (firstImgSrc == null || firstImgSrc.isEmpty()) {
-                    return Mono.error(new IllegalStateException("未找到文章中的图片"));
+                if (candidates.isEmpty()) {
+                    return Mono.error(new NoCoverCandidateException("未找到文章中的图片"));
                 }
-                return Mono.just(firstImgSrc);
+                return settingConfigGetter.getBasicConfig()
+                    .flatMap(config -> selectCoverCandidate(candidates, config));
             })
             .switchIfEmpty(Mono.error(new IllegalStateException("无法获取文章内容")))
-            .onErrorResume(e -> {
+            .onErrorResume(e -> !(e instanceof NoCoverCandidateException), e -> {
                 log.error("提取文章图片失败: {}", e.getMessage());
                 return Mono.error(new ServerWebInputException("获取文章内容时出错: " + e.getMessage()));
             });
     }
 
+    /**
+     * 并发探测候选图片的文件头，按文中顺序选出第一张满足尺寸与宽高比要求的图片。
+     * 尺寸不满足要求的图片（表情、徽章、统计像素等）不会被使用；只有无法探测的图片尺寸未知，
+     * 没有图片满足要求时退回第一张无法探测的图片，都没有时以 {@link NoCoverCandidateException} 结束。
+     */
+    private Mono<String> selectCoverCandidate(List<String> candidates,
+        SettingConfigGetter.BasicConfig config) {
+        var unprobed = new AtomicReference<String>();
+        return Flux.fromIterable(candidates)
+            .flatMapSequential(url -> imageProbeService.probe(url)
+                .map(info -> new ProbedImage(url, info))
+                .onErrorResume(e -> Mono.just(new ProbedImage(url, null))), PROBE_CONCURRENCY)
+            .filter(probed -> {
+                if (probed.info() == null) {
+                    unprobed.compareAndSet(null, probed.url());
+                    return false;
+                }
+                boolean accepted = isCoverCandidate(probed.info(), config);
+                log.info("候选图片 {}: {}x{} {}，{}", probed.url(), probed.info().width(),
+                    probed.info().height(), probed.info().format(), accepted ? "符合要求" : "不符合要求");
+                return accepted;
+            })
+            .next()
+            .map(ProbedImage::url)
+            .switchIfEmpty(Mono.defer(() -> {
+                String fallback = unprobed.get();
+                if (fallback != null) {
+                    log.warn("文章中没有符合尺寸要求的图片，使用第一张无法探测尺寸的图片: {}", fallback);
+                }
+                return Mono.justOrEmpty(fallback);
+            }))
+            .switchIfEmpty(Mono.error(() -> new NoCoverCandidateException("文章中没有符合尺寸要求的图片")));
+    }
+
+    private boolean isCoverCandidate(ImageInfo info, SettingConfigGetter.BasicConfig config) {
+        double ratio = info.aspectRatio();
+        return info.width() >= Objects.requireNonNullElse(config.getFirstImageMinWidth(), 0)
+            && info.height() >= Objects.requireNonNullElse(config.getFirstImageMinHeight(), 0)
+            && ratio >= Objects.requireNonNullElse(config.getFirstImageMinAspectRatio(), 0d)
+            && ratio <= Objects.requireNonNullElse(config.getFirstImageMaxAspectRatio(), Double.MAX_VALUE);
+    }
+
+    private record ProbedImage(String url, ImageInfo info) {
+    }
+
     @Override
     public Mono<String> processCustomizeImage(Post post) {
         log.info("使用自定义图片策略处理文章: {}", post.getSpec().getTitle());
@@ -181,30 +157,6 @@ public class ImageServiceImpl implements ImageService, InitializingBean {
         }
     }
 
-    private String extractMarkdownImage(String content) {
-        Pattern pattern = Pattern.compile("!\\[(.*?)]\\((.*?)\\)");
-        Matcher matcher = pattern.matcher(content);
-        return matcher.find() ? matcher.group(2) : null;
-    }
-
-    private String extractHtmlImage(String content) {
-        try {
-            Document doc = Jsoup.parse(content);
-            var imgElement = doc.selectFirst("img[src]");
-            
-            if (imgElement == null) {
-                log.warn("HTML 中没有找到 img 标签");
-                return null;
-            }
-            
-            String src = imgElement.attr("src");
-            log.info("提取到图片: {}", src);
-            return src;
-        } catch (Exception e) {
-            log.warn("解析HTML图片失败: {}", e.getMessage());
-            return null;
-        }
-    }
     @Override
     public Mono<String> uploadCoverImage(String imageContent, Post post) {
         if (imageContent == null || imageContent.isEmpty()) {
@@ -229,18 +181,42 @@ public class ImageServiceImpl implements ImageService, InitializingBean {
         };
     }
 
+    @Override
+    public Mono<String> uploadCoverImage(Flux<DataBuffer> content, MediaType mediaType, Post post) {
+        return settingConfigGetter.getBasicConfig()
+            .flatMap(config -> ImageUtils.limitSize(content, config.maxDownloadBytes())
+                .switchOnFirst((first, body) -> {
+                    if (!first.hasValue()) {
+                        return body.thenMany(Mono.<String>error(
+                            new IllegalArgumentException("图片内容不能为空")));
+                    }
+                    MediaType resolved = resolveUploadMediaType(mediaType, first.get());
+                    if (resolved == null) {
+                        return body.doOnNext(DataBufferUtils::release)
+                            .thenMany(Mono.<String>error(new IllegalArgumentException(
+                                ImageConstants.ERROR_UNSUPPORTED_FORMAT)));
+                    }
+                    String filename = ImageConstants.COVER_PREFIX + System.currentTimeMillis()
+                        + ImageUtils.getFileExtensionFromMediaType(resolved.toString());
+                    log.info("上传封面图数据流，文件名: {}, 媒体类型: {}", filename, resolved);
+                    return imageTransferService.updateFile(body, post, filename, resolved);
+                })
+                .next());
+    }
+
+    /**
+     * 优先使用声明的图片类型，否则根据文件头识别
+     */
+    private MediaType resolveUploadMediaType(MediaType declared, DataBuffer firstChunk) {
+        if (declared != null && "image".equalsIgnoreCase(declared.getType())
+            && !declared.isWildcardSubtype()) {
+            return new MediaType(declared.getType(), declared.getSubtype());
+        }
+        return ImageUtils.detectMediaType(firstChunk).orElse(null);
+    }
+
     private Mono<String> uploadFromUrl(Post post, String imageUrl) {
-        return Mono.fromCallable(() -> {
-                var uri = new URI(imageUrl);
-                return new InputStreamResource(uri.toURL().openStream());
-            })
-            .flatMap(resource -> {
-                var dataBufferFlux = DataBufferUtils.read(resource, dataBufferFactory, BUFFER_SIZE);
-                return imageTransferService.updateFile(dataBufferFlux, post,
-                    ImageConstants.COVER_PREFIX + System.currentTimeMillis() + ImageUtils.getFileExtension(imageUrl),
-                    ImageUtils.getMediaTypeFromUrl(imageUrl));
-            })
-            .subscribeOn(Schedulers.boundedElastic())
+        return imageTransferService.transferFile(imageUrl, post)
             .onErrorResume(e -> {
                 log.error("Failed to upload image from URL: {}", imageUrl, e);
                 return Mono.error(new RuntimeException("上传图片失败: " + e.getMessage(), e));
@@ -274,7 +250,7 @@ public class ImageServiceImpl implements ImageService, InitializingBean {
         var filename = ImageConstants.COVER_PREFIX + System.currentTimeMillis() + ".svg";
         return imageTransferService.updateFile(dataBufferFlux, post, filename, MediaType.parseMediaType("image/svg+xml"));
     }
-    private ImageType parseImageType(String content) {
+    static ImageType parseImageType(String content) {
         log.debug("解析图片类型，内容前50字符: {}", content.length() > 50 ? content.substring(0, 50) : content);
         
         if (content == null || content.isEmpty()) {
@@ -318,27 +294,8 @@ public class ImageServiceImpl implements ImageService, InitializingBean {
     public Mono<String> processAIGeneratedImage(Post post, String size, String style, boolean watermark) {
         log.info("使用 AI 生成图片策略处理文章: {}, 尺寸: {}, 风格: {}, 水印: {}",
             post.getSpec().getTitle(), size, style, watermark);
-        return settingConfigGetter.getAIConfig()
-            .switchIfEmpty(Mono.error(new IllegalStateException("无法获取 AI 配置")))
-            .flatMap(config -> {
-                String aiProvider = config.getAiProvider();
-                log.info("当前使用 AI 生成平台: {}, 支持平台: {}", aiProvider, aiImageGeneratorMap.keySet());
-                if (StringUtils.isBlank(aiProvider)) {
-                    return Mono.error(new IllegalStateException("未配置 AI 生成平台"));
-                }
-                AIImageGenerator imageGenerator = aiImageGeneratorMap.get(aiProvider);
-                if (Objects.isNull(imageGenerator)) {
-                    return Mono.error(new IllegalStateException("未找到对应的 AI 生成平台"));
-                }
-                return imageGenerator.generateImage(post, size, style, watermark);
-            })
+        return aiGenerationRouter.generate(post, size, style, watermark)
             .doOnSuccess(url -> log.info("AI 封面图生成成功: {}", url))
             .doOnError(e -> log.error("AI 封面图生成失败: {}", e.getMessage()));
     }
-
-    @Override
-    public void afterPropertiesSet() {
-        this.aiImageGeneratorMap = this.aiImageGenerators.stream()
-            .collect(Collectors.toMap(AIImageGenerator::supportAiProvider, Function.identity()));
-    }
 }
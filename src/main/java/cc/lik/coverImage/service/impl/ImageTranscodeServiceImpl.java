@@ -0,0 +1,72 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.ImageWorkers;
+import cc.lik.coverImage.model.ImageFormat;
+import cc.lik.coverImage.model.ImageInfo;
+import cc.lik.coverImage.service.ImageTranscodeService;
+import cc.lik.coverImage.util.ImageDecoder;
+import cc.lik.coverImage.util.ImageEncoder;
+import cc.lik.coverImage.util.ImageHeaderParser;
+import cc.lik.coverImage.util.ImageResizer;
+import java.io.IOException;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * 在 {@link ImageWorkers} 的共用调度器上解码、缩放并重新编码图片，编码器由 {@link ImageEncoder} 按格式池化复用
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageTranscodeServiceImpl implements ImageTranscodeService {
+    private final ImageWorkers imageWorkers;
+
+    @Override
+    public Mono<Transcoded> transcode(byte[] source, int maxLongEdge, ImageFormat format,
+        float quality, long skipBelowBytes) {
+        // 只读文件头判断是否需要处理，小图不进入解码
+        Optional<ImageInfo> header = parseHeader(source);
+        if (header.isPresent() && Math.max(header.get().width(), header.get().height()) <= maxLongEdge
+            && source.length <= skipBelowBytes) {
+            return Mono.empty();
+        }
+        ImageFormat target = format.encodableOr(ImageFormat.JPEG);
+        return Mono.fromCallable(() -> encode(source, maxLongEdge, target, quality))
+            .subscribeOn(imageWorkers.scheduler());
+    }
+
+    private Transcoded encode(byte[] source, int maxLongEdge, ImageFormat format, float quality)
+        throws IOException {
+        var image = ImageDecoder.decode(source, ImageDecoder.DEFAULT_MAX_PIXELS);
+        if (image == null) {
+            return null;
+        }
+        int longEdge = Math.max(image.getWidth(), image.getHeight());
+        boolean resize = longEdge > maxLongEdge;
+        double ratio = resize ? maxLongEdge / (double) longEdge : 1;
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        // 不缩放时也重绘一次，统一为编码器支持的 RGB/ARGB 像素类型
+        var scaled = ImageResizer.resize(image, width, height, format.hasAlpha(),
+            imageWorkers.rowPool());
+        byte[] bytes = ImageEncoder.encode(scaled, format, quality);
+        if (!resize && bytes.length >= source.length) {
+            log.debug("重新编码后未变小，保留原图: {} -> {} 字节", source.length, bytes.length);
+            return null;
+        }
+        log.info("图片已重新压缩: {}x{} {} 字节 -> {}x{} {} {} 字节", image.getWidth(),
+            image.getHeight(), source.length, width, height, format.getFormatName(), bytes.length);
+        return new Transcoded(width, height, format, bytes);
+    }
+
+    private static Optional<ImageInfo> parseHeader(byte[] source) {
+        try {
+            return ImageHeaderParser.parse(source, source.length);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -1,29 +1,60 @@
 package cc.lik.coverImage.service.impl;
 
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.config.UpstreamClients;
+import cc.lik.coverImage.model.ImageFormat;
+import cc.lik.coverImage.service.CoverDerivativeService;
+import cc.lik.coverImage.service.ImageTranscodeService;
 import cc.lik.coverImage.service.ImageTransferService;
 import cc.lik.coverImage.service.SettingConfigGetter;
+import cc.lik.coverImage.util.ImageHeaderParser;
+import cc.lik.coverImage.util.ImageUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
-import org.springframework.http.HttpStatusCode;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SynchronousSink;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import reactor.util.retry.Retry;
 import run.halo.app.core.extension.attachment.Attachment;
 import run.halo.app.core.extension.attachment.endpoint.SimpleFilePart;
 import run.halo.app.core.extension.content.Post;
 import run.halo.app.core.extension.service.AttachmentService;
+import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.extension.router.selector.LabelSelector;
 import run.halo.app.core.extension.User;
 
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Slf4j
@@ -32,14 +63,114 @@ import java.util.regex.Pattern;
 public class ImageTransferServiceImpl implements ImageTransferService {
     private final SettingConfigGetter settingConfigGetter;
     private final AttachmentService attachmentService;
-    private final WebClient.Builder webClientBuilder;
+    private final UpstreamClients upstreamClients;
+    private final CoverMetrics coverMetrics;
+    private final CoverDerivativeService coverDerivativeService;
+    private final ImageTranscodeService imageTranscodeService;
     private final ReactiveExtensionClient client;
     private final DataBufferFactory dataBufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final Map<String, Mono<User>> userCache = new ConcurrentHashMap<>();
+    /**
+     * 附件内容摘要标签，值为 SHA-256 的 base64url 编码
+     */
+    private static final String DIGEST_LABEL = "coverimage.lik.cc/sha256";
+    /**
+     * 预取附件标签，值为原图的内容摘要；原图与其衍生图共用同一个值，取用或丢弃时一并处理
+     */
+    private static final String PREFETCH_LABEL = "coverimage.lik.cc/prefetched";
+    private static final String PREFETCH_CONTEXT_KEY = "coverimage.prefetch";
+    private static final String PREFETCH_GROUP_CONTEXT_KEY = "coverimage.prefetchGroup";
+    private static final Duration USER_CACHE_TTL = Duration.ofMinutes(1);
+    private static final int BUFFER_SIZE = 8192;
     private static final Pattern IMAGE_URL_PATTERN = Pattern.compile(".*\\.(jpg|jpeg|png|gif|webp|bmp)$", Pattern.CASE_INSENSITIVE);
 
     @Override
     public Mono<String> updateFile(String picUrl, Post post) {
-        return getCurrentUser(post.getSpec().getOwner())
+        return transfer(picUrl, post.getSpec().getOwner(), true);
+    }
+
+    @Override
+    public Mono<String> updateFile(String picUrl, String ownerName) {
+        return transfer(picUrl, ownerName, true);
+    }
+
+    @Override
+    public Mono<String> transferFile(String picUrl, Post post) {
+        return transfer(picUrl, post.getSpec().getOwner(), false);
+    }
+
+    @Override
+    public Mono<String> prefetchFile(String picUrl, String ownerName) {
+        return transfer(picUrl, ownerName, false)
+            .contextWrite(Context.of(PREFETCH_CONTEXT_KEY, true));
+    }
+
+    @Override
+    public Mono<String> claimPrefetched(String permalink) {
+        return prefetchGroupOf(permalink)
+            .flatMap(group -> listPrefetched(LabelSelector.builder().eq(PREFETCH_LABEL, group).build())
+                .concatMap(this::unlabelPrefetched)
+                .then(Mono.just(permalink)));
+    }
+
+    @Override
+    public Mono<Void> discardPrefetched(String permalink) {
+        return prefetchGroupOf(permalink)
+            .flatMapMany(group -> listPrefetched(LabelSelector.builder().eq(PREFETCH_LABEL, group).build()))
+            .concatMap(this::deletePrefetched)
+            .then();
+    }
+
+    @Override
+    public Mono<Void> discardAllPrefetched() {
+        return listPrefetched(LabelSelector.builder().exists(PREFETCH_LABEL).build())
+            .concatMap(this::deletePrefetched)
+            .then();
+    }
+
+    /**
+     * 仍带有预取标签的原图附件所属的分组，附件已被取用、被其他文章复用或已删除时为空
+     */
+    private Mono<String> prefetchGroupOf(String permalink) {
+        return listPrefetched(LabelSelector.builder().exists(PREFETCH_LABEL).build())
+            .filter(attachment -> attachment.getStatus() != null
+                && permalink.equals(attachment.getStatus().getPermalink()))
+            .next()
+            .map(attachment -> attachment.getMetadata().getLabels().get(PREFETCH_LABEL));
+    }
+
+    private Flux<Attachment> listPrefetched(LabelSelector selector) {
+        var listOptions = new ListOptions();
+        listOptions.setLabelSelector(selector);
+        return client.listAll(Attachment.class, listOptions, Sort.by("metadata.creationTimestamp"))
+            .filter(attachment -> attachment.getMetadata().getDeletionTimestamp() == null);
+    }
+
+    private Mono<Attachment> unlabelPrefetched(Attachment attachment) {
+        return updateAttachment(attachment, latest -> {
+            var labels = latest.getMetadata().getLabels();
+            if (labels != null) {
+                labels.remove(PREFETCH_LABEL);
+            }
+        });
+    }
+
+    private Mono<Void> deletePrefetched(Attachment attachment) {
+        log.info("删除未使用的预取附件: {}", attachment.getMetadata().getName());
+        return client.delete(attachment)
+            .onErrorResume(e -> {
+                log.warn("删除预取附件失败: {}, 错误: {}", attachment.getMetadata().getName(),
+                    e.getMessage());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /**
+     * @param fallbackToSource 失败或未配置存储策略时是否直接使用原始 URL
+     */
+    private Mono<String> transfer(String picUrl, String ownerName, boolean fallbackToSource) {
+        return getCurrentUser(ownerName)
             .flatMap(user -> {
                 log.info("用户[{}]开始处理图片: {}", user.getMetadata().getName(), picUrl);
                 return settingConfigGetter.getBasicConfig()
@@ -47,6 +178,9 @@ public class ImageTransferServiceImpl implements ImageTransferService {
                     .flatMap(config -> {
                         // 检查配置是否完整
                         if (config.getFilePolicy() == null || config.getFilePolicy().isEmpty()) {
+                            if (!fallbackToSource) {
+                                return Mono.error(new RuntimeException("请先在插件设置中配置附件存储策略"));
+                            }
                             log.warn("未配置附件存储策略，直接使用原始URL: {}", picUrl);
                             return Mono.just(picUrl);
                         }
@@ -55,25 +189,25 @@ public class ImageTransferServiceImpl implements ImageTransferService {
                         boolean isStandardImageUrl = isImageUrl(picUrl);
                         log.info("URL是否为标准图片格式: {}, URL: {}", isStandardImageUrl, picUrl);
 
-                        // 从URL提取文件名，如果没有扩展名则添加.jpg
                         String originalFileName = getFileName(picUrl);
-                        if (!originalFileName.contains(".")) {
-                            originalFileName = originalFileName + ".jpg";
-                        }
-                        final String fileName = originalFileName;
-                        final MediaType mediaType = getMediaType(fileName);
+                        long maxBytes = config.maxDownloadBytes();
+                        log.info("开始下载图片: {}, 大小上限: {} 字节", picUrl, maxBytes);
 
-                        log.info("开始下载图片，文件名: {}, 媒体类型: {}", fileName, mediaType);
-
-                        return downloadImage(webClientBuilder.build(), picUrl)
-                            .flatMap(dataBufferFlux -> {
-                                var file = new SimpleFilePart(fileName, dataBufferFlux, mediaType);
-                                log.info("开始上传图片到存储，策略: {}, 分组: {}", config.getFilePolicy(), config.getFileGroup());
-                                return attachmentService.upload(user.getMetadata().getName(), config.getFilePolicy(), config.getFileGroup(), file, null)
-                                    .subscribeOn(Schedulers.boundedElastic());
+                        return downloadImage(upstreamClients.download(), picUrl, maxBytes,
+                            (contentType, dataBufferFlux) -> {
+                                // 优先使用响应的 Content-Type，其次按扩展名判断，都没有时按 jpg 处理
+                                boolean declared = contentType != null && isImageType(contentType);
+                                MediaType mediaType = declared
+                                    ? new MediaType(contentType.getType(), contentType.getSubtype())
+                                    : getMediaType(originalFileName.contains(".") ? originalFileName : originalFileName + ".jpg");
+                                String fileName = originalFileName.contains(".") ? originalFileName
+                                    : originalFileName + ImageUtils.getFileExtensionFromMediaType(mediaType.toString());
+                                return store(user, config, fileName, mediaType, dataBufferFlux);
                             })
-                            .handle(uploadReturn())
                             .onErrorResume(e -> {
+                                if (!fallbackToSource) {
+                                    return Mono.error(e);
+                                }
                                 log.error("图片转存失败，使用原始URL: {}, 错误: {}", picUrl, e.getMessage(), e);
                                 return Mono.just(picUrl);
                             });
@@ -81,12 +215,289 @@ public class ImageTransferServiceImpl implements ImageTransferService {
             });
     }
 
+    /**
+     * 按内容去重后上传：数据流经时计算 SHA-256 并写入临时文件，已有相同摘要的附件时直接返回其地址并跳过存储写入
+     */
+    private Mono<String> store(User user, SettingConfigGetter.BasicConfig config, String filename,
+        MediaType mediaType, Flux<DataBuffer> content) {
+        return store(user, config, filename, mediaType, content, true);
+    }
+
+    /**
+     * 上传前需要先得到摘要才能去重，内容暂存到临时文件而不是堆内存，未命中时再从文件流式上传；
+     * 只有重新压缩或生成衍生图需要解码时才把原图读入内存
+     *
+     * @param original 是否为封面原图；原图按设置重新压缩并生成衍生图，衍生图本身原样存储
+     */
+    private Mono<String> store(User user, SettingConfigGetter.BasicConfig config, String filename,
+        MediaType mediaType, Flux<DataBuffer> content, boolean original) {
+        boolean raster = original && isRasterType(mediaType);
+        boolean transcode = raster && Boolean.TRUE.equals(config.getTranscodeEnabled());
+        List<Integer> derivativeWidths = raster ? config.derivativeWidthList() : List.of();
+        return Mono.deferContextual(context -> Mono.usingWhen(ImageUtils.createTempFile(),
+            spool -> spool(content, spool)
+                .transform(coverMetrics.stage(CoverMetrics.STAGE_DOWNLOAD))
+                .flatMap(spooled -> {
+                    coverMetrics.downloaded(context, spooled.size());
+                    // 摘要按下载的原始内容计算，同一张图再次转存时可以跳过重新压缩
+                    String digestKey = spooled.digestKey();
+                    if (!transcode && derivativeWidths.isEmpty()) {
+                        return findByDigest(config, digestKey, context)
+                            .doOnNext(existing -> log.info("已存在相同内容的附件，跳过上传: {}",
+                                existing.getStatus().getPermalink()))
+                            .switchIfEmpty(Mono.defer(() -> upload(user, config,
+                                new SimpleFilePart(filename,
+                                    DataBufferUtils.read(spool, dataBufferFactory, BUFFER_SIZE),
+                                    mediaType),
+                                spooled.size(), digestKey, context)));
+                    }
+                    // 预取时衍生图与原图归入同一预取分组
+                    var derivativeContext = Context.of(PREFETCH_GROUP_CONTEXT_KEY, digestKey);
+                    return findByDigest(config, digestKey, context)
+                        .flatMap(existing -> {
+                            log.info("已存在相同内容的附件，跳过上传: {}",
+                                existing.getStatus().getPermalink());
+                            return storeDerivatives(user, config, filename, readBytes(spool),
+                                derivativeWidths, existing).contextWrite(derivativeContext);
+                        })
+                        .switchIfEmpty(Mono.defer(() -> readBytes(spool)
+                            .flatMap(source -> encode(config, filename, mediaType, source, transcode))
+                            .flatMap(file -> upload(user, config, new SimpleFilePart(file.filename(),
+                                    Flux.just(dataBufferFactory.wrap(file.bytes())), file.mediaType()),
+                                    file.bytes().length, digestKey, context)
+                                .flatMap(attachment -> storeDerivatives(user, config, file.filename(),
+                                    Mono.just(file.bytes()), derivativeWidths, attachment)
+                                    .contextWrite(derivativeContext)))));
+                })
+                .handle(uploadReturn()),
+            ImageUtils::deleteTempFile));
+    }
+
+    /**
+     * 写入临时文件的同时计算摘要与大小，缓冲区写入后即释放
+     */
+    private Mono<Spooled> spool(Flux<DataBuffer> content, Path file) {
+        var digest = newDigest();
+        var size = new AtomicLong();
+        return DataBufferUtils.write(content.doOnNext(buffer -> {
+                size.addAndGet(buffer.readableByteCount());
+                updateDigest(digest, buffer);
+            }), file)
+            .then(Mono.fromSupplier(() -> new Spooled(size.get(),
+                Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()))));
+    }
+
+    private Mono<byte[]> readBytes(Path file) {
+        return Mono.fromCallable(() -> Files.readAllBytes(file))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Attachment> upload(User user, SettingConfigGetter.BasicConfig config,
+        FilePart file, long size, String digestKey, ContextView context) {
+        log.info("开始上传图片到存储，策略: {}, 分组: {}", config.getFilePolicy(), config.getFileGroup());
+        return attachmentService.upload(user.getMetadata().getName(), config.getFilePolicy(), config.getFileGroup(), file, null)
+            .subscribeOn(Schedulers.boundedElastic())
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_UPLOAD))
+            .doOnNext(attachment -> coverMetrics.uploaded(context, size))
+            .flatMap(attachment -> labelDigest(attachment, digestKey, context.hasKey(PREFETCH_CONTEXT_KEY)
+                ? context.getOrDefault(PREFETCH_GROUP_CONTEXT_KEY, digestKey) : null));
+    }
+
+    /**
+     * 按设置重新压缩原图，无需处理或处理失败时原样返回
+     */
+    private Mono<EncodedImage> encode(SettingConfigGetter.BasicConfig config, String filename,
+        MediaType mediaType, byte[] source, boolean transcode) {
+        var unchanged = new EncodedImage(filename, mediaType, source);
+        if (!transcode) {
+            return Mono.just(unchanged);
+        }
+        int maxLongEdge = config.getTranscodeMaxLongEdge() == null ? 2560
+            : Math.max(1, config.getTranscodeMaxLongEdge());
+        int quality = config.getTranscodeQuality() == null ? 85 : config.getTranscodeQuality();
+        long skipBelowBytes = config.getTranscodeSkipBelowKb() == null ? 500 * 1024L
+            : Math.max(0, config.getTranscodeSkipBelowKb()) * 1024L;
+        return imageTranscodeService.transcode(source, maxLongEdge,
+                ImageFormat.from(config.getTranscodeFormat(), ImageFormat.JPEG),
+                Math.clamp(quality, 1, 100) / 100f, skipBelowBytes)
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_TRANSCODE))
+            .map(transcoded -> new EncodedImage(baseName(filename)
+                + transcoded.format().getExtension(), transcoded.format().getMediaType(),
+                transcoded.bytes()))
+            .defaultIfEmpty(unchanged)
+            .onErrorResume(e -> {
+                log.warn("重新压缩图片失败，按原图上传: {}", e.getMessage());
+                return Mono.just(unchanged);
+            });
+    }
+
+    /**
+     * 生成并上传衍生图，srcset 写入原图附件的注解，并为附件打上地址标签供设置封面时查找；
+     * 原图附件已有 srcset 时直接复用。失败时只记录日志，不影响原图
+     */
+    private Mono<Attachment> storeDerivatives(User user, SettingConfigGetter.BasicConfig config,
+        String filename, Mono<byte[]> sourceBytes, List<Integer> widths, Attachment original) {
+        if (widths.isEmpty() || original.getStatus() == null
+            || original.getStatus().getPermalink() == null) {
+            return Mono.just(original);
+        }
+        String permalink = original.getStatus().getPermalink();
+        var annotations = original.getMetadata().getAnnotations();
+        String existing = annotations == null ? null
+            : annotations.get(CoverDerivativeService.SRCSET_ANNOTATION);
+        if (existing != null) {
+            var labels = original.getMetadata().getLabels();
+            if (labels != null && labels.containsKey(CoverDerivativeService.PERMALINK_LABEL)) {
+                return Mono.just(original);
+            }
+            // 早先生成的衍生图没有地址标签，补上后才能被查到
+            return updateAttachment(original, attachment -> labelPermalink(attachment, permalink))
+                .onErrorResume(e -> {
+                    log.warn("写入附件地址标签失败: {}", e.getMessage());
+                    return Mono.just(original);
+                });
+        }
+        ImageFormat format = ImageFormat.from(config.getDerivativeFormat(), ImageFormat.WEBP);
+        int quality = config.getDerivativeQuality() == null ? 80 : config.getDerivativeQuality();
+        String baseName = baseName(filename);
+        return sourceBytes.flatMap(source -> coverDerivativeService.render(source, widths, format,
+                    Math.clamp(quality, 1, 100) / 100f)
+                .transform(coverMetrics.stage(CoverMetrics.STAGE_DERIVATIVES))
+                .flatMapMany(Flux::fromIterable)
+                .flatMapSequential(derivative -> store(user, config,
+                        baseName + "-" + derivative.width() + "w" + derivative.format().getExtension(),
+                        derivative.format().getMediaType(),
+                        Flux.just(dataBufferFactory.wrap(derivative.bytes())), false)
+                    .map(url -> url + " " + derivative.width() + "w"))
+                .collectList()
+                .flatMap(candidates -> {
+                    if (candidates.isEmpty()) {
+                        return Mono.just(original);
+                    }
+                    var srcset = new ArrayList<>(candidates);
+                    ImageHeaderParser.parse(source, source.length)
+                        .ifPresent(info -> srcset.add(permalink + " " + info.width() + "w"));
+                    String value = String.join(", ", srcset);
+                    log.info("已生成 {} 张衍生图: {}", candidates.size(), permalink);
+                    return updateAttachment(original, attachment -> {
+                        var metadata = attachment.getMetadata();
+                        if (metadata.getAnnotations() == null) {
+                            metadata.setAnnotations(new HashMap<>());
+                        }
+                        metadata.getAnnotations().put(CoverDerivativeService.SRCSET_ANNOTATION, value);
+                        labelPermalink(attachment, permalink);
+                    });
+                }))
+            .onErrorResume(e -> {
+                log.warn("生成衍生图失败，不影响原图: {}", e.getMessage());
+                return Mono.just(original);
+            });
+    }
+
+    private static void labelPermalink(Attachment attachment, String permalink) {
+        var metadata = attachment.getMetadata();
+        if (metadata.getLabels() == null) {
+            metadata.setLabels(new HashMap<>());
+        }
+        metadata.getLabels().put(CoverDerivativeService.PERMALINK_LABEL,
+            CoverDerivativeService.permalinkKey(permalink));
+    }
+
+    /**
+     * 只在当前配置的存储策略与分组中查找，切换策略后不会返回旧存储中的附件；
+     * 非预取时命中尚在预取缓冲区中的附件会移除其预取标签，避免被随后丢弃
+     */
+    private Mono<Attachment> findByDigest(SettingConfigGetter.BasicConfig config,
+        String digestKey, ContextView context) {
+        var listOptions = new ListOptions();
+        listOptions.setLabelSelector(LabelSelector.builder().eq(DIGEST_LABEL, digestKey).build());
+        return client.listAll(Attachment.class, listOptions, Sort.by("metadata.creationTimestamp"))
+            .filter(attachment -> attachment.getMetadata().getDeletionTimestamp() == null)
+            .filter(attachment -> Objects.equals(config.getFilePolicy(),
+                attachment.getSpec().getPolicyName())
+                && Objects.equals(StringUtils.defaultIfBlank(config.getFileGroup(), null),
+                StringUtils.defaultIfBlank(attachment.getSpec().getGroupName(), null)))
+            .filter(attachment -> attachment.getStatus() != null
+                && attachment.getStatus().getPermalink() != null)
+            .next()
+            .onErrorResume(e -> {
+                log.warn("查询附件摘要索引失败，继续上传: {}", e.getMessage());
+                return Mono.empty();
+            })
+            .flatMap(existing -> context.hasKey(PREFETCH_CONTEXT_KEY)
+                || existing.getMetadata().getLabels() == null
+                || !existing.getMetadata().getLabels().containsKey(PREFETCH_LABEL)
+                ? Mono.just(existing)
+                : claimPrefetched(existing.getStatus().getPermalink())
+                    .onErrorResume(e -> {
+                        log.warn("取用预取附件失败: {}", e.getMessage());
+                        return Mono.empty();
+                    })
+                    .thenReturn(existing));
+    }
+
+    /**
+     * @param prefetchGroup 预取分组，非预取时为 null
+     */
+    private Mono<Attachment> labelDigest(Attachment attachment, String digestKey,
+        String prefetchGroup) {
+        return updateAttachment(attachment, latest -> {
+            var labels = latest.getMetadata().getLabels();
+            if (labels == null) {
+                labels = new HashMap<>();
+                latest.getMetadata().setLabels(labels);
+            }
+            labels.put(DIGEST_LABEL, digestKey);
+            if (prefetchGroup != null) {
+                labels.put(PREFETCH_LABEL, prefetchGroup);
+            }
+        }).onErrorResume(e -> {
+            log.warn("写入附件摘要失败，不影响本次上传: {}", e.getMessage());
+            return Mono.just(attachment);
+        });
+    }
+
+    /**
+     * 重新获取最新的附件再修改；附件刚创建时会被附件同步器更新，版本冲突时重试
+     */
+    private Mono<Attachment> updateAttachment(Attachment attachment,
+        Consumer<Attachment> mutator) {
+        String name = attachment.getMetadata().getName();
+        return Mono.defer(() -> client.get(Attachment.class, name)
+                .flatMap(latest -> {
+                    mutator.accept(latest);
+                    return client.update(latest);
+                }))
+            .retryWhen(Retry.backoff(5, Duration.ofMillis(100))
+                .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+
+    private static String baseName(String filename) {
+        return filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, DataBuffer buffer) {
+        try (var iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                digest.update(iterator.next());
+            }
+        }
+    }
+
     private BiConsumer<Attachment, SynchronousSink<String>> uploadReturn() {
         return (uploadedAttachment, sink) -> {
             if (uploadedAttachment != null && uploadedAttachment.getStatus() != null
                 && uploadedAttachment.getStatus().getPermalink() != null) {
                 String uploadedUri = uploadedAttachment.getStatus().getPermalink();
-                log.info("图片上传成功: {}", uploadedUri);
+                log.info("图片已存储: {}", uploadedUri);
                 sink.next(uploadedUri);
             } else {
                 sink.error(new IllegalStateException("图片上传成功但无法获取URI"));
@@ -108,12 +519,8 @@ public class ImageTransferServiceImpl implements ImageTransferService {
                             return Mono.error(new RuntimeException("请先在插件设置中配置附件存储策略"));
                         }
                         
-                        var file = new SimpleFilePart(filename, dataBufferFlux, mediaType);
-                        log.info("开始上传图片到存储，策略: {}, 分组: {}", config.getFilePolicy(), config.getFileGroup());
-                        return attachmentService.upload(user.getMetadata().getName(), config.getFilePolicy(), config.getFileGroup(), file, null)
-                            .subscribeOn(Schedulers.boundedElastic());
+                        return store(user, config, filename, mediaType, dataBufferFlux);
                     })
-                    .handle(uploadReturn())
                     .onErrorResume(e -> {
                         log.error("图片处理失败: {}", e.getMessage());
                         return Mono.error(e);
@@ -122,8 +529,10 @@ public class ImageTransferServiceImpl implements ImageTransferService {
     }
 
     private Mono<User> getCurrentUser(String userName) {
-        return client.get(User.class, userName)
-            .doOnError(e -> log.error("获取用户[{}]信息失败: {}", userName, e.getMessage()));
+        // 短时间缓存作者信息，批量生成时同一作者只读取一次
+        return userCache.computeIfAbsent(userName, name -> client.get(User.class, name)
+            .doOnError(e -> log.error("获取用户[{}]信息失败: {}", name, e.getMessage()))
+            .cache(user -> USER_CACHE_TTL, e -> Duration.ZERO, () -> Duration.ZERO));
     }
 
     private boolean isImageUrl(String url) {
@@ -154,20 +563,55 @@ public class ImageTransferServiceImpl implements ImageTransferService {
         return MediaType.APPLICATION_OCTET_STREAM;
     }
 
-    private Mono<Flux<DataBuffer>> downloadImage(WebClient webClient, String url) {
-        return Mono.just(webClient.get()
+    /**
+     * 以流的形式下载图片并交给 consumer 处理，响应体必须在 consumer 返回的 Mono 中消费完毕
+     *
+     * <p>拒绝错误状态码、非图片的 Content-Type 以及超过 maxBytes 的响应；未声明长度时按实际接收字节数中止。</p>
+     */
+    private <T> Mono<T> downloadImage(WebClient webClient, String url, long maxBytes,
+        BiFunction<MediaType, Flux<DataBuffer>, Mono<T>> consumer) {
+        return Mono.defer(() -> webClient.get()
             .uri(URI.create(url))
             .header("User-Agent", "curl/8.12.1")
-            .header("Accept", "*/*")
-            .retrieve()
-            .onStatus(
-                HttpStatusCode::isError,
-                response -> response.bodyToMono(String.class).flatMap(errorBody -> {
+            .header("Accept", "image/*,*/*;q=0.8")
+            .exchangeToMono(response -> {
+                if (response.statusCode().isError()) {
                     log.error("下载图片失败，状态码: {}", response.statusCode());
                     return response.releaseBody().then(Mono.error(new RuntimeException("下载图片失败，状态码: " + response.statusCode())));
-                })
-            )
-            .bodyToFlux(DataBuffer.class)
-            .doOnError(e -> log.error("下载图片失败: {}", e.getMessage())));
+                }
+                var headers = response.headers();
+                MediaType contentType = headers.contentType().orElse(null);
+                if (contentType != null && !isImageType(contentType)
+                    && !MediaType.APPLICATION_OCTET_STREAM.isCompatibleWith(contentType)) {
+                    return response.releaseBody().then(Mono.error(new IllegalArgumentException(
+                        "URL 返回的不是图片，Content-Type: " + contentType)));
+                }
+                long contentLength = headers.contentLength().orElse(-1L);
+                if (contentLength > maxBytes) {
+                    return response.releaseBody().then(Mono.error(new IllegalArgumentException(
+                        "图片大小 " + contentLength + " 字节超过上限 " + maxBytes + " 字节")));
+                }
+                return consumer.apply(contentType,
+                    ImageUtils.limitSize(response.bodyToFlux(DataBuffer.class), maxBytes));
+            }))
+            .doOnError(e -> log.error("下载图片失败: {}", e.getMessage()));
+    }
+
+    /**
+     * 可以重新压缩与生成衍生图的位图类型，SVG 无需缩放，GIF 缩放后会丢失动画
+     */
+    private boolean isRasterType(MediaType mediaType) {
+        return isImageType(mediaType) && !"svg+xml".equalsIgnoreCase(mediaType.getSubtype())
+            && !"gif".equalsIgnoreCase(mediaType.getSubtype());
+    }
+
+    private boolean isImageType(MediaType mediaType) {
+        return "image".equalsIgnoreCase(mediaType.getType());
+    }
+
+    private record EncodedImage(String filename, MediaType mediaType, byte[] bytes) {
+    }
+
+    private record Spooled(long size, String digestKey) {
     }
-} 
\ No newline at end of file
+}
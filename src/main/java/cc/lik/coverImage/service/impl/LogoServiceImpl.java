@@ -0,0 +1,180 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.ImageWorkers;
+import cc.lik.coverImage.config.UpstreamClients;
+import cc.lik.coverImage.service.LogoService;
+import cc.lik.coverImage.util.ImageResizer;
+import cc.lik.coverImage.util.SingleFlight;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * 带缓存的 Logo 获取
+ *
+ * <p>缓存缩放并编码后的 Logo，按 URL 限量保存。新鲜期内直接命中缓存，过期后携带
+ * ETag / Last-Modified 条件请求重新验证；同一 Logo 的并发请求合并为一次下载。</p>
+ */
+@Slf4j
+@Service
+public class LogoServiceImpl implements LogoService {
+    private static final int MAX_ENTRIES = 64;
+    private static final Duration FRESHNESS = Duration.ofMinutes(30);
+    private static final Duration FETCH_TIMEOUT = Duration.ofSeconds(15);
+    private static final int TARGET_WIDTH = 200;
+    private static final int TARGET_HEIGHT = 200;
+
+    private final WebClient webClient;
+    private final ImageWorkers imageWorkers;
+    private final Map<String, CachedLogo> cache = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedLogo> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        });
+    private final SingleFlight<String, String> inflight = new SingleFlight<>();
+
+    public LogoServiceImpl(UpstreamClients upstreamClients, ImageWorkers imageWorkers) {
+        this.webClient = upstreamClients.download();
+        this.imageWorkers = imageWorkers;
+    }
+
+    @Override
+    public Mono<String> getLogoDataUri(String logoUrl) {
+        if (StringUtils.isBlank(logoUrl)) {
+            return Mono.just("");
+        }
+        var cached = cache.get(logoUrl);
+        if (cached != null && cached.isFresh()) {
+            return Mono.just(cached.dataUri());
+        }
+        return inflight.execute(logoUrl, () -> fetch(logoUrl, cached));
+    }
+
+    private Mono<String> fetch(String url, CachedLogo cached) {
+        return Mono.defer(() -> webClient.get()
+                .uri(URI.create(url))
+                .headers(headers -> {
+                    if (cached == null) {
+                        return;
+                    }
+                    if (cached.etag() != null) {
+                        headers.setIfNoneMatch(cached.etag());
+                    }
+                    if (cached.lastModified() != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+                    }
+                })
+                .exchangeToMono(response -> {
+                    if (response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) && cached != null) {
+                        log.debug("Logo 未变化，继续使用缓存: {}", url);
+                        return response.releaseBody().thenReturn(cached.revalidated());
+                    }
+                    if (response.statusCode().isError()) {
+                        return response.releaseBody().then(Mono.error(new IllegalStateException(
+                            "下载 Logo 失败，状态码: " + response.statusCode())));
+                    }
+                    var headers = response.headers().asHttpHeaders();
+                    String etag = headers.getETag();
+                    String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+                    return response.bodyToMono(byte[].class)
+                        .publishOn(imageWorkers.scheduler())
+                        .map(bytes -> new CachedLogo(encodeLogo(bytes), etag, lastModified,
+                            Instant.now()));
+                }))
+            .timeout(FETCH_TIMEOUT)
+            .doOnNext(logo -> cache.put(url, logo))
+            .map(CachedLogo::dataUri)
+            .onErrorResume(e -> {
+                log.error("Failed to process logo image: {}", e.getMessage());
+                return Mono.just(cached != null ? cached.dataUri() : "");
+            });
+    }
+
+    /**
+     * 解码、缩放并编码为 data URI，格式识别与解码共用同一份字节
+     */
+    private String encodeLogo(byte[] bytes) {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return "";
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                BufferedImage resizedImage = resizeImage(reader.read(0),
+                    imageWorkers.rowPool());
+                return encodeToBase64(resizedImage, reader.getFormatName());
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("解析 Logo 图片失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 保持宽高比缩放到 200x200 以内，不带透明通道的 Logo 保持原格式编码
+     */
+    static BufferedImage resizeImage(BufferedImage originalImage, ForkJoinPool rowPool) {
+        return ImageResizer.fit(originalImage, TARGET_WIDTH, TARGET_HEIGHT,
+            originalImage.getColorModel().hasAlpha(), rowPool);
+    }
+
+    static String encodeToBase64(BufferedImage image, String formatName) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, formatName, outputStream)) {
+            // 带透明通道的图片无法写为 JPEG 等格式，退回 PNG
+            formatName = "png";
+            outputStream.reset();
+            ImageIO.write(image, formatName, outputStream);
+        }
+        String base64String = Base64.getEncoder().encodeToString(outputStream.toByteArray());
+        MediaType mediaType = getMediaTypeByFormatName(formatName);
+        return String.format("data:%s;base64,%s", mediaType.toString(), base64String);
+    }
+
+    private static MediaType getMediaTypeByFormatName(String formatName) {
+        return switch (formatName.toLowerCase()) {
+            case "png" -> MediaType.IMAGE_PNG;
+            case "jpg", "jpeg" -> MediaType.IMAGE_JPEG;
+            case "gif" -> MediaType.IMAGE_GIF;
+            case "bmp" -> MediaType.parseMediaType("image/bmp");
+            case "webp" -> MediaType.parseMediaType("image/webp");
+            default -> MediaType.APPLICATION_OCTET_STREAM;
+        };
+    }
+
+    private record CachedLogo(String dataUri, String etag, String lastModified, Instant fetchedAt) {
+        boolean isFresh() {
+            return fetchedAt.plus(FRESHNESS).isAfter(Instant.now());
+        }
+
+        CachedLogo revalidated() {
+            return new CachedLogo(dataUri, etag, lastModified, Instant.now());
+        }
+    }
+}
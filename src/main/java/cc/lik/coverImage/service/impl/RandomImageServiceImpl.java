@@ -0,0 +1,238 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.service.ImageTransferService;
+import cc.lik.coverImage.service.RandomImageService;
+import cc.lik.coverImage.service.RandomSourceRegistry;
+import cc.lik.coverImage.service.SettingConfigGetter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.content.Post;
+
+/**
+ * 随机图获取与预取
+ *
+ * <p>每种随机图类型按作者与存储策略维护一个小缓冲区，存放已转存到附件存储的图片。
+ * 取图时出队并取用对应附件，随后在后台补满缓冲区；缓冲区为空或预取的附件不可用时退化为直接请求上游。</p>
+ *
+ * <p>预取的附件带有预取标签，取用时移除。条目过期、类型或存储策略变更、关闭预取以及插件停止时，
+ * 未取用的附件随之删除；插件启动时清理上次运行遗留的预取附件。</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RandomImageServiceImpl implements RandomImageService, InitializingBean,
+    DisposableBean {
+    private static final Duration STALE_AFTER = Duration.ofHours(6);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+    private static final int MAX_PREFETCH_SIZE = 20;
+
+    private final SettingConfigGetter settingConfigGetter;
+    private final ImageTransferService imageTransferService;
+    private final RandomSourceRegistry randomSourceRegistry;
+
+    private final Map<BufferKey, PrefetchBuffer> buffers = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<String> take(Post post) {
+        log.info("开始处理随机图片，文章标题: {}", post.getSpec().getTitle());
+        String owner = post.getSpec().getOwner();
+        return settingConfigGetter.getBasicConfig()
+            .switchIfEmpty(Mono.error(new IllegalStateException("无法获取基本配置")))
+            .flatMap(config -> {
+                String randomType = config.getRandomType();
+                log.info("获取到随机图片类型配置: {}", randomType);
+                if (randomType == null || randomType.isEmpty()) {
+                    log.error("随机图片类型未配置");
+                    return Mono.error(new IllegalStateException("未配置随机图片类型"));
+                }
+                int prefetchSize = Math.min(MAX_PREFETCH_SIZE,
+                    Math.max(0, Objects.requireNonNullElse(config.getRandomPrefetchSize(), 0)));
+                if (prefetchSize == 0) {
+                    discard(key -> true).subscribe();
+                    return fetchAndTransfer(randomType, owner);
+                }
+
+                var key = new BufferKey(randomType, owner, config.getFilePolicy());
+                // 类型或存储策略变更后，旧缓冲区中的图片不再适用
+                discard(other -> other.owner().equals(owner) && !other.equals(key)).subscribe();
+                var buffer = buffers.computeIfAbsent(key, k -> new PrefetchBuffer());
+
+                String prefetched = buffer.poll(this::discardEntry);
+                Mono<String> result = prefetched != null
+                    ? claim(prefetched, randomType, owner)
+                    : fetchAndTransfer(randomType, owner);
+                return result.doFinally(signal -> refill(key, buffer, prefetchSize));
+            })
+            .doOnError(e -> log.error("处理随机图片过程中发生错误: {}", e.getMessage(), e));
+    }
+
+    /**
+     * 取用预取的附件；附件已被删除或取用失败时直接请求上游，不让一张失效的预取图导致封面生成失败
+     */
+    private Mono<String> claim(String prefetched, String randomType, String owner) {
+        return imageTransferService.claimPrefetched(prefetched)
+            .doOnNext(url -> log.info("使用预取的随机图片: {}", url))
+            .switchIfEmpty(Mono.defer(() -> {
+                log.warn("预取的随机图片已不可用，改为直接获取: {}", prefetched);
+                return fetchAndTransfer(randomType, owner);
+            }))
+            .onErrorResume(e -> {
+                log.warn("取用预取的随机图片失败，改为直接获取: {}, 错误: {}", prefetched,
+                    e.getMessage());
+                return fetchAndTransfer(randomType, owner);
+            });
+    }
+
+    /**
+     * 在后台补满缓冲区，同一缓冲区同时只有一个补充任务
+     */
+    private void refill(BufferKey key, PrefetchBuffer buffer, int prefetchSize) {
+        int missing = prefetchSize - buffer.size();
+        if (missing <= 0 || !buffer.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        log.debug("开始预取随机图片，类型: {}, 数量: {}", key.randomType(), missing);
+        buffer.task = Flux.range(0, missing)
+            .concatMap(i -> randomSourceRegistry.resolve(key.randomType())
+                .flatMap(imgUrl -> imageTransferService.prefetchFile(imgUrl, key.owner())))
+            .doFinally(signal -> buffer.refilling.set(false))
+            // 后台预取不在封面生成的关键路径上，单独标记以免混入前台耗时
+            .contextWrite(CoverMetrics.strategy("randomPrefetch"))
+            .subscribe(url -> {
+                    if (buffers.get(key) == buffer) {
+                        buffer.offer(url);
+                    } else {
+                        // 补充期间缓冲区已被丢弃
+                        discardEntry(url);
+                    }
+                },
+                e -> log.warn("预取随机图片失败，类型: {}, 错误: {}", key.randomType(), e.getMessage()));
+    }
+
+    private Mono<String> fetchAndTransfer(String randomType, String owner) {
+        return randomSourceRegistry.resolve(randomType)
+            .flatMap(imgUrl -> imageTransferService.updateFile(imgUrl, owner)
+                .doOnSuccess(url -> log.info("图片转存成功: {}", url))
+                .doOnError(e -> log.error("图片转存失败: {}", e.getMessage())));
+    }
+
+    /**
+     * 移除匹配的缓冲区，停止其补充任务并删除其中尚未取用的附件
+     */
+    private Mono<Void> discard(Predicate<BufferKey> predicate) {
+        List<String> urls = new ArrayList<>();
+        buffers.entrySet().removeIf(entry -> {
+            if (!predicate.test(entry.getKey())) {
+                return false;
+            }
+            entry.getValue().cancel();
+            urls.addAll(entry.getValue().drain());
+            return true;
+        });
+        return Flux.fromIterable(urls)
+            .concatMap(this::delete)
+            .then();
+    }
+
+    private void discardEntry(String url) {
+        delete(url).subscribe();
+    }
+
+    private Mono<Void> delete(String url) {
+        return imageTransferService.discardPrefetched(url)
+            .onErrorResume(e -> {
+                log.warn("删除预取的随机图片失败: {}, 错误: {}", url, e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // 缓冲区只在内存中，上次运行留下的预取附件已无人引用
+        imageTransferService.discardAllPrefetched()
+            .subscribe(null, e -> log.warn("清理遗留的预取附件失败: {}", e.getMessage()));
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            discard(key -> true).block(SHUTDOWN_TIMEOUT);
+        } catch (RuntimeException e) {
+            log.warn("删除预取的随机图片未完成，将在下次启动时清理: {}", e.getMessage());
+        }
+    }
+
+    private record BufferKey(String randomType, String owner, String filePolicy) {
+    }
+
+    private record Entry(String url, Instant fetchedAt) {
+        boolean isStale() {
+            return fetchedAt.plus(STALE_AFTER).isBefore(Instant.now());
+        }
+    }
+
+    private static class PrefetchBuffer {
+        private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+        private volatile Disposable task;
+
+        void offer(String url) {
+            queue.offer(new Entry(url, Instant.now()));
+        }
+
+        /**
+         * 出队一张未过期的图片，过期的交给 onStale 丢弃
+         */
+        String poll(Consumer<String> onStale) {
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                if (!entry.isStale()) {
+                    return entry.url();
+                }
+                onStale.accept(entry.url());
+            }
+            return null;
+        }
+
+        /**
+         * 取出全部剩余图片
+         */
+        List<String> drain() {
+            List<String> urls = new ArrayList<>();
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                urls.add(entry.url());
+            }
+            return urls;
+        }
+
+        int size() {
+            return queue.size();
+        }
+
+        void cancel() {
+            var current = task;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package cc.lik.coverImage.service.impl;
+
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.config.UpstreamClients;
+import cc.lik.coverImage.service.RandomSourceRegistry;
+import cc.lik.coverImage.service.SettingConfigGetter;
+import cc.lik.coverImage.service.SettingConfigGetter.RandomSource;
+import cc.lik.coverImage.util.EndpointHealth;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * 随机图源注册表
+ *
+ * <p>内置图源与设置中的自定义图源合并后，按类型筛选，跳过熔断中的图源，
+ * 再按延迟 EWMA 与错误率排序依次尝试。开启对冲时，首选图源超过对冲延迟仍未返回，
+ * 会同时请求次优图源并取先成功的结果。</p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RandomSourceRegistryImpl implements RandomSourceRegistry {
+    private static final MediaType TEXT_JSON = MediaType.parseMediaType("text/json;charset=UTF-8");
+    private static final Duration SOURCE_TIMEOUT = Duration.ofSeconds(10);
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final Duration OPEN_DURATION = Duration.ofMinutes(1);
+    private static final String DEFAULT_TYPE = "views";
+
+    private static final List<RandomSource> BUILTIN_SOURCES = List.of(
+        source("dmoe", "acg", "https://www.dmoe.cc/random.php?return=json", "/imgurl,/url", "/code", "200"),
+        source("xsot-bing", "views", "https://api.xsot.cn/bing/?quality=1920x1080&mkt=zh-cn", "/data/image", null, null),
+        source("52vmy", "all4k", "https://api.52vmy.cn/api/img/tu/pc", "/imgurl,/url", "/code", "200")
+    );
+
+    private final SettingConfigGetter settingConfigGetter;
+    private final UpstreamClients upstreamClients;
+    private final CoverMetrics coverMetrics;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, EndpointHealth> health = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<String> resolve(String randomType) {
+        return settingConfigGetter.getBasicConfig()
+            .flatMap(config -> {
+                var candidates = candidates(config, randomType);
+                if (candidates.isEmpty()) {
+                    return Mono.error(new IllegalStateException("随机图源均处于熔断状态，请稍后重试"));
+                }
+                log.info("随机图源候选顺序: {}", candidates.stream().map(RandomSource::getName).toList());
+                int hedgeDelay = Math.max(0, Objects.requireNonNullElse(config.getRandomHedgeDelayMs(), 0));
+                return tryFrom(candidates, 0, hedgeDelay > 0 ? Duration.ofMillis(hedgeDelay) : null);
+            });
+    }
+
+    private List<RandomSource> candidates(SettingConfigGetter.BasicConfig config, String randomType) {
+        var all = new ArrayList<RandomSource>();
+        if (config.getRandomSources() != null) {
+            config.getRandomSources().stream()
+                .filter(source -> StringUtils.isNoneBlank(source.getUrl(), source.getImagePointer()))
+                .forEach(all::add);
+        }
+        all.addAll(BUILTIN_SOURCES);
+        var known = all.stream().anyMatch(source -> randomType.equals(source.getType()));
+        String type = known ? randomType : DEFAULT_TYPE;
+        return all.stream()
+            .filter(source -> type.equals(source.getType()))
+            .filter(source -> healthOf(source).isAvailable())
+            .sorted(Comparator.comparingDouble(source -> healthOf(source).score()))
+            .toList();
+    }
+
+    private Mono<String> tryFrom(List<RandomSource> sources, int index, Duration hedgeDelay) {
+        if (index >= sources.size()) {
+            return Mono.error(new IllegalStateException("所有随机图源均请求失败"));
+        }
+        Mono<String> primary = request(sources.get(index));
+        if (hedgeDelay != null && index + 1 < sources.size()) {
+            Mono<String> hedge = Mono.delay(hedgeDelay)
+                .then(Mono.defer(() -> request(sources.get(index + 1))));
+            return Mono.firstWithValue(primary, hedge)
+                .onErrorResume(e -> tryFrom(sources, index + 2, hedgeDelay));
+        }
+        return primary.onErrorResume(e -> tryFrom(sources, index + 1, hedgeDelay));
+    }
+
+    private Mono<String> request(RandomSource source) {
+        return Mono.defer(() -> {
+            var sourceHealth = healthOf(source);
+            if (!sourceHealth.tryAcquire()) {
+                return Mono.error(new IllegalStateException("随机图源熔断中: " + source.getName()));
+            }
+            long start = System.nanoTime();
+            return upstreamClients.randomImage().get()
+                .uri(source.getUrl())
+                .accept(TEXT_JSON)
+                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
+                .header("Accept", "application/json, text/plain, */*")
+                .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
+                .header("Cache-Control", "no-cache")
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(body -> parse(source, body))
+                .timeout(SOURCE_TIMEOUT)
+                .doOnNext(imgUrl -> {
+                    var latency = Duration.ofNanos(System.nanoTime() - start);
+                    sourceHealth.onSuccess(latency);
+                    log.info("从 {} 获取到图片URL: {}，耗时 {} ms", source.getName(), imgUrl, latency.toMillis());
+                })
+                .doOnError(e -> {
+                    sourceHealth.onFailure();
+                    log.warn("随机图源 {} 请求失败: {}，状态: {}", source.getName(), e.getMessage(),
+                        sourceHealth.state());
+                })
+                .doOnCancel(sourceHealth::onCancel)
+                .transform(coverMetrics.stage(CoverMetrics.STAGE_UPSTREAM_CALL));
+        })
+        .contextWrite(CoverMetrics.route(source.getName(), null));
+    }
+
+    private String parse(RandomSource source, String body) {
+        JsonNode json;
+        try {
+            json = objectMapper.readTree(body);
+        } catch (Exception e) {
+            throw new IllegalStateException("解析JSON响应失败: " + e.getMessage(), e);
+        }
+        if (StringUtils.isNotBlank(source.getSuccessPointer())) {
+            String actual = json.at(source.getSuccessPointer().trim()).asText();
+            if (!Objects.equals(actual, StringUtils.trimToEmpty(source.getSuccessValue()))) {
+                throw new IllegalStateException("获取图片失败: " + json.path("msg").asText(actual));
+            }
+        }
+        for (String pointer : source.getImagePointer().split(",")) {
+            JsonNode node = json.at(pointer.trim());
+            if (node.isTextual() && !node.asText().isBlank()) {
+                return node.asText();
+            }
+        }
+        throw new IllegalStateException("响应中未找到图片地址: " + source.getImagePointer());
+    }
+
+    private EndpointHealth healthOf(RandomSource source) {
+        return health.computeIfAbsent(source.getUrl(),
+            url -> new EndpointHealth(FAILURE_THRESHOLD, OPEN_DURATION));
+    }
+
+    private static RandomSource source(String name, String type, String url, String imagePointer,
+        String successPointer, String successValue) {
+        var source = new RandomSource();
+        source.setName(name);
+        source.setType(type);
+        source.setUrl(url);
+        source.setImagePointer(imagePointer);
+        source.setSuccessPointer(successPointer);
+        source.setSuccessValue(successValue);
+        return source;
+    }
+}
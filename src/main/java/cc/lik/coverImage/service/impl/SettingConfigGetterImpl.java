@@ -1,25 +1,65 @@
 package cc.lik.coverImage.service.impl;
 
+import cc.lik.coverImage.config.CoverMetrics;
 import cc.lik.coverImage.service.SettingConfigGetter;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
+import run.halo.app.plugin.PluginConfigUpdatedEvent;
 import run.halo.app.plugin.ReactiveSettingFetcher;
 
+/**
+ * 插件设置读取
+ *
+ * <p>设置在首次读取后缓存为快照，插件配置变更时失效；读取失败不会被缓存。
+ * 兜底的过期时间用于防止错过配置变更事件。</p>
+ */
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class SettingConfigGetterImpl implements SettingConfigGetter {
+    private static final Duration SNAPSHOT_TTL = Duration.ofMinutes(10);
+
     private final ReactiveSettingFetcher settingFetcher;
+    private final CoverMetrics coverMetrics;
+
+    private final AtomicReference<Mono<BasicConfig>> basicConfig = new AtomicReference<>();
+    private final AtomicReference<Mono<AIConfig>> aiConfig = new AtomicReference<>();
 
     @Override
     public Mono<BasicConfig> getBasicConfig() {
-       return settingFetcher.fetch(BasicConfig.GROUP, BasicConfig.class)
-           .defaultIfEmpty(new BasicConfig());
+        return coverMetrics.stage(CoverMetrics.STAGE_SETTINGS,
+            snapshot(basicConfig, () -> settingFetcher.fetch(BasicConfig.GROUP, BasicConfig.class)
+                .defaultIfEmpty(new BasicConfig())));
     }
 
     @Override
     public Mono<AIConfig> getAIConfig() {
-        return settingFetcher.fetch(AIConfig.GROUP, AIConfig.class)
-            .defaultIfEmpty(new AIConfig());
+        return coverMetrics.stage(CoverMetrics.STAGE_SETTINGS,
+            snapshot(aiConfig, () -> settingFetcher.fetch(AIConfig.GROUP, AIConfig.class)
+                .defaultIfEmpty(new AIConfig())));
+    }
+
+    @EventListener(PluginConfigUpdatedEvent.class)
+    public void onConfigUpdated() {
+        log.debug("插件设置已变更，刷新设置快照");
+        basicConfig.set(null);
+        aiConfig.set(null);
+    }
+
+    private static <T> Mono<T> snapshot(AtomicReference<Mono<T>> holder, Supplier<Mono<T>> loader) {
+        var cached = holder.get();
+        if (cached != null) {
+            return cached;
+        }
+        var fresh = loader.get().cache(config -> SNAPSHOT_TTL, e -> Duration.ZERO, () -> Duration.ZERO);
+        // 并发初始化时以先写入者为准，保证同一时刻只有一个快照
+        return holder.compareAndSet(null, fresh) ? fresh : Objects.requireNonNullElse(holder.get(), fresh);
     }
 }
@@ -1,5 +1,7 @@
 package cc.lik.coverImage.service.impl;
 
+import cc.lik.coverImage.config.CoverMetrics;
+import cc.lik.coverImage.model.GeneratedImage;
 import cc.lik.coverImage.service.SettingConfigGetter;
 import cc.lik.coverImage.service.SettingConfigGetter.AIConfig;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -10,9 +12,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
-import run.halo.app.core.extension.content.Post;
 
 /**
  * 火山引擎配置
@@ -30,15 +30,18 @@ public class VolcengineImageGenerator extends AbstractAIImageGenerator {
     private static final String VOLC_GENERATIONS_PATH = "/images/generations";
 
     @Override
-    protected Mono<String> doGenerateImage(SettingConfigGetter.AIConfig config, String prompt,
-        String size, boolean watermark, Post post) {
+    protected String defaultModel(SettingConfigGetter.AIConfig config) {
+        return StringUtils.defaultIfBlank(config.getVolcModel(), "doubao-seedream-4-5-251128");
+    }
+
+    @Override
+    protected Mono<GeneratedImage> doGenerateImage(SettingConfigGetter.AIConfig config,
+        String model, String prompt, String size, boolean watermark) {
         if (StringUtils.isBlank(config.getVolcApiKey())) {
             return Mono.error(new IllegalStateException("未配置 API Key"));
         }
-        String actualModel =
-            StringUtils.defaultIfBlank(config.getVolcModel(), "doubao-seedream-4-5-251128");
-        return callVolcengineApi(config, prompt, actualModel, size)
-            .flatMap(imageUrl -> imageTransferService.updateFile(imageUrl, post));
+        return callVolcengineApi(config, prompt, model, size)
+            .map(GeneratedImage.Remote::new);
     }
 
     @Override
@@ -62,9 +65,7 @@ public class VolcengineImageGenerator extends AbstractAIImageGenerator {
         String apiUrl = config.getVolcApiBaseUrl() + VOLC_GENERATIONS_PATH;
         log.info("调用火山方舟 API: {}, 模型：{}, 尺寸：{}", apiUrl, model, size);
 
-        WebClient webClient = webClientBuilder.build();
-
-        return webClient.post()
+        return webClient().post()
             .uri(apiUrl)
             .header(HttpHeaders.AUTHORIZATION, "Bearer " + config.getVolcApiKey().trim())
             .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
@@ -114,7 +115,8 @@ public class VolcengineImageGenerator extends AbstractAIImageGenerator {
                     log.error("解析火山方舟响应失败：{}", e.getMessage());
                     return Mono.error(new IllegalStateException("解析响应失败：" + e.getMessage()));
                 }
-            });
+            })
+            .transform(coverMetrics.stage(CoverMetrics.STAGE_UPSTREAM_CALL));
     }
 
 }
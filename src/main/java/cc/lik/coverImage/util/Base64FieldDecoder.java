@@ -0,0 +1,252 @@
+package cc.lik.coverImage.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 从 JSON 响应流中提取 base64 字段并增量解码
+ *
+ * <p>按字节扫描 JSON 结构，只记录对象键的路径，不构建节点树。命中
+ * {@code parentKey.key} 的第一个字符串值时，按固定大小的块解码为 {@link DataBuffer}
+ * 依次发出，整个过程只占用一个块大小的缓冲区。其余字段直接跳过。</p>
+ */
+public final class Base64FieldDecoder {
+    /**
+     * 每块 base64 字符数，必须是 4 的倍数
+     */
+    private static final int CHUNK_CHARS = 64 * 1024;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    private final String parentKey;
+    private final String key;
+    private final DataBufferFactory bufferFactory;
+
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private final StringBuilder keyBuilder = new StringBuilder();
+    private final byte[] chunk = new byte[CHUNK_CHARS];
+    private int chunkLength;
+
+    private Mode mode = Mode.STRUCTURE;
+    private Role role = Role.SKIP;
+    private int unicodeDigits;
+    private int unicodeValue;
+    private boolean found;
+    private boolean done;
+
+    private Base64FieldDecoder(String parentKey, String key, DataBufferFactory bufferFactory) {
+        this.parentKey = parentKey;
+        this.key = key;
+        this.bufferFactory = bufferFactory;
+    }
+
+    /**
+     * 提取并解码字段
+     *
+     * @param body JSON 响应体，读取后释放
+     * @param parentKey 字段所在对象的键，如 {@code inlineData}
+     * @param key 字段键，如 {@code data}
+     * @param bufferFactory 解码结果的缓冲区工厂
+     * @return 解码后的数据块；响应中没有该字段时为空
+     */
+    public static Flux<DataBuffer> decode(Flux<DataBuffer> body, String parentKey, String key,
+        DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            var decoder = new Base64FieldDecoder(parentKey, key, bufferFactory);
+            return body
+                .concatMapIterable(buffer -> {
+                    try {
+                        return decoder.feed(buffer);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .concatWith(Mono.fromSupplier(decoder::finish).flatMapMany(Flux::fromIterable));
+        });
+    }
+
+    private List<DataBuffer> feed(DataBuffer buffer) {
+        var output = new ArrayList<DataBuffer>(1);
+        if (done) {
+            return output;
+        }
+        try (var iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext() && !done) {
+                ByteBuffer bytes = iterator.next();
+                while (bytes.hasRemaining() && !done) {
+                    accept(bytes.get(), output);
+                }
+            }
+        } catch (RuntimeException e) {
+            output.forEach(DataBufferUtils::release);
+            throw e;
+        }
+        return output;
+    }
+
+    private List<DataBuffer> finish() {
+        if (found && !done) {
+            throw new IllegalStateException("响应在 base64 字段结束前中断");
+        }
+        return List.of();
+    }
+
+    private void accept(byte b, List<DataBuffer> output) {
+        switch (mode) {
+            case STRUCTURE -> acceptStructure(b);
+            case STRING -> acceptString(b, output);
+            case ESCAPE -> acceptEscape(b, output);
+            case UNICODE -> acceptUnicode(b, output);
+        }
+    }
+
+    private void acceptStructure(byte b) {
+        Frame top = stack.peek();
+        switch (b) {
+            case '{' -> stack.push(new Frame(true));
+            case '[' -> stack.push(new Frame(false));
+            case '}', ']' -> stack.poll();
+            case ':' -> {
+                if (top != null) {
+                    top.expectKey = false;
+                }
+            }
+            case ',' -> {
+                if (top != null && top.object) {
+                    top.expectKey = true;
+                }
+            }
+            case '"' -> {
+                mode = Mode.STRING;
+                if (top != null && top.object && top.expectKey) {
+                    role = Role.KEY;
+                    keyBuilder.setLength(0);
+                } else if (isTarget()) {
+                    role = Role.TARGET;
+                    found = true;
+                } else {
+                    role = Role.SKIP;
+                }
+            }
+            default -> {
+                // 空白、数字与字面量不影响路径
+            }
+        }
+    }
+
+    private boolean isTarget() {
+        var iterator = stack.iterator();
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        Frame current = iterator.next();
+        if (!current.object || !key.equals(current.key) || !iterator.hasNext()) {
+            return false;
+        }
+        Frame parent = iterator.next();
+        return parent.object && parentKey.equals(parent.key);
+    }
+
+    private void acceptString(byte b, List<DataBuffer> output) {
+        switch (b) {
+            case '\\' -> mode = Mode.ESCAPE;
+            case '"' -> {
+                mode = Mode.STRUCTURE;
+                if (role == Role.KEY) {
+                    stack.element().key = keyBuilder.toString();
+                } else if (role == Role.TARGET) {
+                    flush(output);
+                    done = true;
+                }
+            }
+            default -> append((char) (b & 0xFF), output);
+        }
+    }
+
+    private void acceptEscape(byte b, List<DataBuffer> output) {
+        mode = Mode.STRING;
+        switch (b) {
+            case 'u' -> {
+                mode = Mode.UNICODE;
+                unicodeDigits = 0;
+                unicodeValue = 0;
+            }
+            // \n、\r 等转义在 base64 中只可能是换行，直接忽略
+            case 'n', 'r', 't', 'b', 'f' -> {
+                if (role == Role.KEY) {
+                    append(' ', output);
+                }
+            }
+            default -> append((char) (b & 0xFF), output);
+        }
+    }
+
+    private void acceptUnicode(byte b, List<DataBuffer> output) {
+        int digit = Character.digit(b, 16);
+        if (digit < 0) {
+            throw new IllegalArgumentException("JSON 中的 unicode 转义无效");
+        }
+        unicodeValue = (unicodeValue << 4) | digit;
+        if (++unicodeDigits == 4) {
+            mode = Mode.STRING;
+            append((char) unicodeValue, output);
+        }
+    }
+
+    private void append(char c, List<DataBuffer> output) {
+        switch (role) {
+            case KEY -> {
+                if (keyBuilder.length() < MAX_KEY_LENGTH) {
+                    keyBuilder.append(c);
+                }
+            }
+            case TARGET -> {
+                if (Character.isWhitespace(c)) {
+                    return;
+                }
+                chunk[chunkLength++] = (byte) c;
+                if (chunkLength == chunk.length) {
+                    flush(output);
+                }
+            }
+            case SKIP -> {
+            }
+        }
+    }
+
+    private void flush(List<DataBuffer> output) {
+        if (chunkLength == 0) {
+            return;
+        }
+        ByteBuffer decoded = Base64.getDecoder().decode(ByteBuffer.wrap(chunk, 0, chunkLength));
+        chunkLength = 0;
+        output.add(bufferFactory.wrap(decoded));
+    }
+
+    private enum Mode {
+        STRUCTURE, STRING, ESCAPE, UNICODE
+    }
+
+    private enum Role {
+        KEY, TARGET, SKIP
+    }
+
+    private static final class Frame {
+        private final boolean object;
+        private boolean expectKey;
+        private String key;
+
+        private Frame(boolean object) {
+            this.object = object;
+            this.expectKey = object;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package cc.lik.coverImage.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * 上游端点的健康统计与熔断器
+ *
+ * <p>记录延迟的指数加权移动平均（EWMA）、最近若干次请求的延迟分布与错误率。
+ * 延迟只取自成功的请求，失败（尤其是超时）只计入错误率，不会把延迟统计拉向超时时长。
+ * 连续失败达到阈值后熔断，熔断期结束后放行一次试探请求，成功则恢复，失败则重新熔断。</p>
+ */
+public final class EndpointHealth {
+    private static final double ALPHA = 0.3;
+    private static final int WINDOW = 64;
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final long[] samples = new long[WINDOW];
+    private int sampleCount;
+    private int nextSample;
+    private double ewmaMillis;
+    private double errorRate;
+    private int consecutiveFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    /**
+     * @param failureThreshold 触发熔断的连续失败次数
+     * @param openDuration 熔断持续时间
+     */
+    public EndpointHealth(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * 当前是否可以发出请求；熔断期结束后只放行一次试探请求
+     */
+    public synchronized boolean tryAcquire() {
+        refreshState();
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (trialInFlight) {
+                    yield false;
+                }
+                trialInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * 是否可以发出请求，不占用试探名额
+     */
+    public synchronized boolean isAvailable() {
+        refreshState();
+        return state == State.CLOSED || (state == State.HALF_OPEN && !trialInFlight);
+    }
+
+    public synchronized void onSuccess(Duration latency) {
+        record(latency);
+        errorRate = errorRate * (1 - ALPHA);
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        errorRate = errorRate * (1 - ALPHA) + ALPHA;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+        trialInFlight = false;
+    }
+
+    /**
+     * 请求被取消（如对冲请求中落后的一方），不计入统计
+     */
+    public synchronized void onCancel() {
+        trialInFlight = false;
+    }
+
+    public synchronized State state() {
+        refreshState();
+        return state;
+    }
+
+    /**
+     * 成功请求延迟的 EWMA（毫秒），尚无样本时为 0
+     */
+    public synchronized double ewmaMillis() {
+        return ewmaMillis;
+    }
+
+    public synchronized double errorRate() {
+        return errorRate;
+    }
+
+    /**
+     * 最近成功请求延迟的分位数（毫秒），尚无样本时为 0
+     *
+     * @param quantile 0 到 1 之间，如 0.95
+     */
+    public synchronized long percentileMillis(double quantile) {
+        if (sampleCount == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(quantile * sampleCount) - 1;
+        return sorted[Math.max(0, Math.min(sampleCount - 1, index))];
+    }
+
+    /**
+     * 排序用的综合得分，越小越好：延迟按错误率加权；只有失败记录的端点排在最后
+     */
+    public synchronized double score() {
+        if (sampleCount == 0 && errorRate > 0) {
+            return Double.MAX_VALUE;
+        }
+        return ewmaMillis * (1 + 4 * errorRate);
+    }
+
+    private void record(Duration latency) {
+        long millis = latency.toMillis();
+        ewmaMillis = sampleCount == 0 ? millis : ewmaMillis * (1 - ALPHA) + millis * ALPHA;
+        samples[nextSample] = millis;
+        nextSample = (nextSample + 1) % WINDOW;
+        sampleCount = Math.min(WINDOW, sampleCount + 1);
+    }
+
+    private void refreshState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+    }
+}
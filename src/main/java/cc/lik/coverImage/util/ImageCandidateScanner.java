@@ -0,0 +1,397 @@
+package cc.lik.coverImage.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 文章图片扫描器
+ *
+ * <p>单次顺序扫描文章内容，按出现顺序惰性返回图片地址，取到所需数量即可停止，
+ * 不构建 DOM。支持：</p>
+ * <ul>
+ *     <li>Markdown 行内图片 {@code ![alt](url "title")} 与引用式图片 {@code ![alt][ref]}</li>
+ *     <li>HTML {@code <img>} 的 {@code src}、{@code srcset} 以及 {@code data-src} 等懒加载属性</li>
+ * </ul>
+ * <p>Markdown 内容会跳过代码块与行内代码；{@code data:} 占位图不作为候选。</p>
+ */
+public final class ImageCandidateScanner implements Iterator<String> {
+    /**
+     * 懒加载插件常用的真实地址属性，优先于 src
+     */
+    private static final List<String> LAZY_SRC_ATTRIBUTES = List.of(
+        "data-src", "data-original", "data-lazy-src", "data-actualsrc", "data-url");
+    private static final List<String> SRCSET_ATTRIBUTES = List.of(
+        "data-srcset", "data-lazy-srcset", "srcset");
+    private static final Pattern REFERENCE_DEFINITION = Pattern.compile(
+        "^ {0,3}\\[([^\\]\\n]+)]:[ \\t]*<?([^\\s>]+)>?", Pattern.MULTILINE);
+    private static final Pattern SRCSET_SEPARATOR = Pattern.compile(",\\s+");
+
+    private final String content;
+    private final boolean markdown;
+    private int pos;
+    private String next;
+    private Map<String, String> references;
+
+    private ImageCandidateScanner(String content, boolean markdown) {
+        this.content = content == null ? "" : content;
+        this.markdown = markdown;
+    }
+
+    /**
+     * @param content 文章内容
+     * @param markdown 是否为 Markdown 内容，否则按 HTML 处理
+     */
+    public static ImageCandidateScanner of(String content, boolean markdown) {
+        return new ImageCandidateScanner(content, markdown);
+    }
+
+    /**
+     * 第一张可用的图片
+     */
+    public static Optional<String> first(String content, boolean markdown) {
+        var scanner = of(content, markdown);
+        return scanner.hasNext() ? Optional.of(scanner.next()) : Optional.empty();
+    }
+
+    /**
+     * 按出现顺序返回至多 limit 张不重复的图片
+     */
+    public static List<String> all(String content, boolean markdown, int limit) {
+        var scanner = of(content, markdown);
+        var result = new ArrayList<String>();
+        while (result.size() < limit && scanner.hasNext()) {
+            String url = scanner.next();
+            if (!result.contains(url)) {
+                result.add(url);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String result = next;
+        next = null;
+        return result;
+    }
+
+    private String advance() {
+        int length = content.length();
+        while (pos < length) {
+            char c = content.charAt(pos);
+            if (markdown && c == '`') {
+                pos = skipCode(pos);
+                continue;
+            }
+            String found = null;
+            if (markdown && c == '!' && pos + 1 < length && content.charAt(pos + 1) == '['
+                && !isEscaped(pos)) {
+                found = readMarkdownImage();
+            } else if (c == '<' && startsWithIgnoreCase(pos + 1, "img")
+                && pos + 4 < length && isTagNameEnd(content.charAt(pos + 4))) {
+                found = readImgTag();
+            } else {
+                pos++;
+            }
+            if (isUsable(found)) {
+                return found.trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取 {@code ![alt](url)}、{@code ![alt][ref]} 或 {@code ![alt]}，pos 位于 {@code !}
+     */
+    private String readMarkdownImage() {
+        int altStart = pos + 2;
+        int altEnd = findClosingBracket(altStart);
+        if (altEnd < 0) {
+            pos = altStart;
+            return null;
+        }
+        String alt = content.substring(altStart, altEnd);
+        int after = altEnd + 1;
+        if (after < content.length() && content.charAt(after) == '(') {
+            return readInlineDestination(after + 1);
+        }
+        String label = alt;
+        pos = after;
+        if (after < content.length() && content.charAt(after) == '[') {
+            int labelEnd = content.indexOf(']', after + 1);
+            if (labelEnd > after + 1) {
+                label = content.substring(after + 1, labelEnd);
+            }
+            if (labelEnd > 0) {
+                pos = labelEnd + 1;
+            }
+        }
+        return resolveReference(label);
+    }
+
+    private String readInlineDestination(int start) {
+        int length = content.length();
+        int i = start;
+        while (i < length && (content.charAt(i) == ' ' || content.charAt(i) == '\t')) {
+            i++;
+        }
+        if (i < length && content.charAt(i) == '<') {
+            int end = content.indexOf('>', i + 1);
+            if (end < 0) {
+                pos = i + 1;
+                return null;
+            }
+            pos = skipToClosingParen(end + 1);
+            return content.substring(i + 1, end);
+        }
+        int urlStart = i;
+        int depth = 0;
+        while (i < length) {
+            char c = content.charAt(i);
+            if (Character.isWhitespace(c)) {
+                break;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            }
+            i++;
+        }
+        pos = skipToClosingParen(i);
+        return content.substring(urlStart, i);
+    }
+
+    /**
+     * 跳过可选的标题，返回右括号之后的位置
+     */
+    private int skipToClosingParen(int from) {
+        int end = content.indexOf(')', from);
+        int lineEnd = content.indexOf('\n', from);
+        if (end < 0 || (lineEnd >= 0 && lineEnd < end)) {
+            return Math.max(from, pos + 1);
+        }
+        return end + 1;
+    }
+
+    private int findClosingBracket(int from) {
+        int depth = 0;
+        for (int i = from; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            } else if (c == '\n' && i + 1 < content.length() && content.charAt(i + 1) == '\n') {
+                // 图片的替代文本不会跨段落
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 引用定义通常位于文末，只有遇到引用式图片时才建立一次索引
+     */
+    private String resolveReference(String label) {
+        if (references == null) {
+            references = new HashMap<>();
+            var matcher = REFERENCE_DEFINITION.matcher(content);
+            while (matcher.find()) {
+                references.putIfAbsent(normalizeLabel(matcher.group(1)), matcher.group(2));
+            }
+        }
+        return references.get(normalizeLabel(label));
+    }
+
+    private static String normalizeLabel(String label) {
+        return label.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 解析 {@code <img ...>} 的属性，pos 位于 {@code <}
+     */
+    private String readImgTag() {
+        int length = content.length();
+        int i = pos + 4;
+        var attributes = new HashMap<String, String>();
+        while (i < length) {
+            char c = content.charAt(i);
+            if (c == '>') {
+                i++;
+                break;
+            }
+            if (Character.isWhitespace(c) || c == '/') {
+                i++;
+                continue;
+            }
+            int nameStart = i;
+            while (i < length && !Character.isWhitespace(content.charAt(i))
+                && "=/>".indexOf(content.charAt(i)) < 0) {
+                i++;
+            }
+            String name = content.substring(nameStart, i).toLowerCase(Locale.ROOT);
+            while (i < length && Character.isWhitespace(content.charAt(i))) {
+                i++;
+            }
+            String value = "";
+            if (i < length && content.charAt(i) == '=') {
+                i++;
+                while (i < length && Character.isWhitespace(content.charAt(i))) {
+                    i++;
+                }
+                if (i < length && (content.charAt(i) == '"' || content.charAt(i) == '\'')) {
+                    char quote = content.charAt(i);
+                    int end = content.indexOf(quote, i + 1);
+                    end = end < 0 ? length : end;
+                    value = content.substring(i + 1, end);
+                    i = Math.min(length, end + 1);
+                } else {
+                    int valueStart = i;
+                    while (i < length && !Character.isWhitespace(content.charAt(i))
+                        && content.charAt(i) != '>') {
+                        i++;
+                    }
+                    value = content.substring(valueStart, i);
+                }
+            }
+            attributes.putIfAbsent(name, decodeEntities(value));
+        }
+        pos = i;
+        return pickImgSource(attributes);
+    }
+
+    private static String pickImgSource(Map<String, String> attributes) {
+        for (String name : LAZY_SRC_ATTRIBUTES) {
+            String value = attributes.get(name);
+            if (isUsable(value)) {
+                return value;
+            }
+        }
+        for (String name : SRCSET_ATTRIBUTES) {
+            String value = largestSrcsetCandidate(attributes.get(name));
+            if (isUsable(value)) {
+                return value;
+            }
+        }
+        return attributes.get("src");
+    }
+
+    /**
+     * 从 srcset 中选出宽度或像素密度最大的一项
+     */
+    private static String largestSrcsetCandidate(String srcset) {
+        if (srcset == null || srcset.isBlank()) {
+            return null;
+        }
+        String best = null;
+        double bestScore = -1;
+        for (String candidate : SRCSET_SEPARATOR.split(srcset)) {
+            String[] parts = candidate.trim().split("\\s+");
+            if (parts.length == 0 || parts[0].isEmpty()) {
+                continue;
+            }
+            double score = 1;
+            if (parts.length > 1 && parts[1].length() > 1) {
+                try {
+                    score = Double.parseDouble(parts[1].substring(0, parts[1].length() - 1));
+                    if (parts[1].endsWith("x")) {
+                        // 像素密度与宽度描述不会混用，统一放大后比较
+                        score *= 1000;
+                    }
+                } catch (NumberFormatException ignored) {
+                    score = 1;
+                }
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = parts[0];
+            }
+        }
+        return best;
+    }
+
+    private static String decodeEntities(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&amp;", "&")
+            .replace("&quot;", "\"")
+            .replace("&#39;", "'")
+            .replace("&lt;", "<")
+            .replace("&gt;", ">");
+    }
+
+    /**
+     * 跳过行内代码与围栏代码块，pos 位于反引号
+     */
+    private int skipCode(int start) {
+        int run = 0;
+        while (start + run < content.length() && content.charAt(start + run) == '`') {
+            run++;
+        }
+        String fence = "`".repeat(run);
+        int search = start + run;
+        while (true) {
+            int close = content.indexOf(fence, search);
+            if (close < 0) {
+                return start + run;
+            }
+            int closeRun = 0;
+            while (close + closeRun < content.length() && content.charAt(close + closeRun) == '`') {
+                closeRun++;
+            }
+            if (closeRun == run) {
+                return close + run;
+            }
+            search = close + closeRun;
+        }
+    }
+
+    private boolean isEscaped(int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && content.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    private boolean startsWithIgnoreCase(int from, String prefix) {
+        return content.regionMatches(true, from, prefix, 0, prefix.length());
+    }
+
+    private static boolean isTagNameEnd(char c) {
+        return Character.isWhitespace(c) || c == '/' || c == '>';
+    }
+
+    private static boolean isUsable(String url) {
+        return url != null && !url.isBlank() && !url.trim().startsWith("data:")
+            && !url.trim().startsWith("#");
+    }
+}
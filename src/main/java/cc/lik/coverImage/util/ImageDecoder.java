@@ -0,0 +1,51 @@
+package cc.lik.coverImage.util;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * 位图解码工具，解码前先按文件头检查像素数
+ */
+public final class ImageDecoder {
+    /**
+     * 默认允许解码的最大像素数，避免超大图片耗尽内存
+     */
+    public static final long DEFAULT_MAX_PIXELS = 50_000_000L;
+
+    private ImageDecoder() {
+        throw new AssertionError("工具类不应被实例化");
+    }
+
+    /**
+     * 解码图片
+     *
+     * @param bytes 图片字节
+     * @param maxPixels 允许的最大像素数
+     * @return 解码后的图片，格式无法识别时为 null
+     * @throws IOException 解码失败或像素数超过上限
+     */
+    public static BufferedImage decode(byte[] bytes, long maxPixels) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IOException("图片像素数 " + pixels + " 超过上限 " + maxPixels);
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package cc.lik.coverImage.util;
+
+import cc.lik.coverImage.model.ImageFormat;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * 位图编码工具，按格式复用 {@link ImageWriter}
+ */
+public final class ImageEncoder {
+    private static final int MAX_POOLED_WRITERS = 8;
+    private static final Map<ImageFormat, BlockingQueue<ImageWriter>> WRITERS =
+        new ConcurrentHashMap<>();
+
+    private ImageEncoder() {
+        throw new AssertionError("工具类不应被实例化");
+    }
+
+    /**
+     * 编码图片
+     *
+     * @param image 图片，JPEG 需为不带透明通道的类型
+     * @param format 目标格式
+     * @param quality 有损格式的压缩质量，0-1
+     * @return 编码后的字节
+     */
+    public static byte[] encode(BufferedImage image, ImageFormat format, float quality)
+        throws IOException {
+        ImageWriter writer = borrow(format);
+        var output = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        try (var imageOutput = new MemoryCacheImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (format.isLossy() && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null
+                    && param.getCompressionTypes().length > 0) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(Math.clamp(quality, 0f, 1f));
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            release(format, writer);
+        }
+        return output.toByteArray();
+    }
+
+    private static ImageWriter borrow(ImageFormat format) throws IOException {
+        var pooled = pool(format).poll();
+        if (pooled != null) {
+            return pooled;
+        }
+        var writers = ImageIO.getImageWritersByFormatName(format.getFormatName());
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的图片编码格式: " + format.getFormatName());
+        }
+        return writers.next();
+    }
+
+    private static void release(ImageFormat format, ImageWriter writer) {
+        writer.reset();
+        if (!pool(format).offer(writer)) {
+            writer.dispose();
+        }
+    }
+
+    private static BlockingQueue<ImageWriter> pool(ImageFormat format) {
+        return WRITERS.computeIfAbsent(format, key -> new ArrayBlockingQueue<>(MAX_POOLED_WRITERS));
+    }
+}
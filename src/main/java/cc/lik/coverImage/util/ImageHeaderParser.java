@@ -0,0 +1,161 @@
+package cc.lik.coverImage.util;
+
+import cc.lik.coverImage.model.ImageInfo;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 只读取文件头解析图片格式与尺寸
+ *
+ * <p>支持 PNG、JPEG、GIF、WebP、BMP 与 SVG。数据不足以得出结果时返回空，
+ * 调用方应继续读取后重试；内容不是可识别的图片时抛出 {@link IllegalArgumentException}。</p>
+ */
+public final class ImageHeaderParser {
+    private static final Pattern SVG_WIDTH = Pattern.compile("<svg[^>]*?\\swidth\\s*=\\s*[\"']([\\d.]+)(px)?[\"']",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern SVG_HEIGHT = Pattern.compile("<svg[^>]*?\\sheight\\s*=\\s*[\"']([\\d.]+)(px)?[\"']",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern SVG_VIEW_BOX = Pattern.compile(
+        "<svg[^>]*?\\sviewBox\\s*=\\s*[\"'][-\\d.]+[\\s,]+[-\\d.]+[\\s,]+([\\d.]+)[\\s,]+([\\d.]+)[\"']",
+        Pattern.CASE_INSENSITIVE);
+
+    private ImageHeaderParser() {
+        throw new AssertionError("工具类不应被实例化");
+    }
+
+    /**
+     * @param data 文件开头的字节
+     * @param length 有效字节数
+     * @return 图片信息；数据不足时为空
+     */
+    public static Optional<ImageInfo> parse(byte[] data, int length) {
+        if (length < 4) {
+            return Optional.empty();
+        }
+        if (u8(data, 0) == 0x89 && data[1] == 'P' && data[2] == 'N' && data[3] == 'G') {
+            return length < 24 ? Optional.empty()
+                : Optional.of(new ImageInfo("png", be32(data, 16), be32(data, 20)));
+        }
+        if (u8(data, 0) == 0xFF && u8(data, 1) == 0xD8) {
+            return parseJpeg(data, length);
+        }
+        if (data[0] == 'G' && data[1] == 'I' && data[2] == 'F' && data[3] == '8') {
+            return length < 10 ? Optional.empty()
+                : Optional.of(new ImageInfo("gif", le16(data, 6), le16(data, 8)));
+        }
+        if (data[0] == 'R' && data[1] == 'I' && data[2] == 'F' && data[3] == 'F') {
+            return parseWebp(data, length);
+        }
+        if (data[0] == 'B' && data[1] == 'M') {
+            return length < 26 ? Optional.empty()
+                : Optional.of(new ImageInfo("bmp", le32(data, 18), Math.abs(le32(data, 22))));
+        }
+        return parseSvg(data, length);
+    }
+
+    private static Optional<ImageInfo> parseJpeg(byte[] data, int length) {
+        int offset = 2;
+        while (offset + 4 <= length) {
+            if (u8(data, offset) != 0xFF) {
+                throw new IllegalArgumentException("JPEG 结构无效");
+            }
+            int marker = u8(data, offset + 1);
+            if (marker == 0xFF) {
+                // 填充字节
+                offset++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD9)) {
+                offset += 2;
+                continue;
+            }
+            boolean startOfFrame = marker >= 0xC0 && marker <= 0xCF
+                && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (startOfFrame) {
+                if (offset + 9 > length) {
+                    return Optional.empty();
+                }
+                return Optional.of(new ImageInfo("jpeg", be16(data, offset + 7), be16(data, offset + 5)));
+            }
+            offset += 2 + be16(data, offset + 2);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<ImageInfo> parseWebp(byte[] data, int length) {
+        if (length < 30) {
+            return Optional.empty();
+        }
+        if (data[8] != 'W' || data[9] != 'E' || data[10] != 'B' || data[11] != 'P') {
+            throw new IllegalArgumentException("不是 WebP 图片");
+        }
+        String chunk = new String(data, 12, 4, StandardCharsets.US_ASCII);
+        return switch (chunk) {
+            case "VP8 " -> Optional.of(new ImageInfo("webp",
+                le16(data, 26) & 0x3FFF, le16(data, 28) & 0x3FFF));
+            case "VP8L" -> {
+                int b0 = u8(data, 21);
+                int b1 = u8(data, 22);
+                int b2 = u8(data, 23);
+                int b3 = u8(data, 24);
+                yield Optional.of(new ImageInfo("webp",
+                    1 + (((b1 & 0x3F) << 8) | b0),
+                    1 + (((b3 & 0x0F) << 10) | (b2 << 2) | ((b1 & 0xC0) >> 6))));
+            }
+            case "VP8X" -> Optional.of(new ImageInfo("webp", 1 + le24(data, 24), 1 + le24(data, 27)));
+            default -> throw new IllegalArgumentException("无法识别的 WebP 格式: " + chunk);
+        };
+    }
+
+    private static Optional<ImageInfo> parseSvg(byte[] data, int length) {
+        String text = new String(data, 0, length, StandardCharsets.UTF_8);
+        String trimmed = text.stripLeading();
+        if (!trimmed.startsWith("<")) {
+            throw new IllegalArgumentException("无法识别的图片格式");
+        }
+        int svgStart = text.indexOf("<svg");
+        if (svgStart < 0 || text.indexOf('>', svgStart) < 0) {
+            // 根元素尚未读完（XML 声明、注释或 DOCTYPE 之后）
+            return Optional.empty();
+        }
+        String root = text.substring(svgStart, text.indexOf('>', svgStart) + 1);
+        int width = number(SVG_WIDTH.matcher(root));
+        int height = number(SVG_HEIGHT.matcher(root));
+        var viewBox = SVG_VIEW_BOX.matcher(root);
+        if ((width == 0 || height == 0) && viewBox.find()) {
+            width = (int) Double.parseDouble(viewBox.group(1));
+            height = (int) Double.parseDouble(viewBox.group(2));
+        }
+        return Optional.of(new ImageInfo("svg", width, height));
+    }
+
+    private static int number(Matcher matcher) {
+        return matcher.find() ? (int) Double.parseDouble(matcher.group(1)) : 0;
+    }
+
+    private static int u8(byte[] data, int offset) {
+        return data[offset] & 0xFF;
+    }
+
+    private static int be16(byte[] data, int offset) {
+        return (u8(data, offset) << 8) | u8(data, offset + 1);
+    }
+
+    private static int be32(byte[] data, int offset) {
+        return (be16(data, offset) << 16) | be16(data, offset + 2);
+    }
+
+    private static int le16(byte[] data, int offset) {
+        return u8(data, offset) | (u8(data, offset + 1) << 8);
+    }
+
+    private static int le24(byte[] data, int offset) {
+        return le16(data, offset) | (u8(data, offset + 2) << 16);
+    }
+
+    private static int le32(byte[] data, int offset) {
+        return le24(data, offset) | (u8(data, offset + 3) << 24);
+    }
+}
@@ -0,0 +1,252 @@
+package cc.lik.coverImage.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 图片缩放工具
+ *
+ * <p>缩小时按面积平均（box filter）在 {@code int[]} 像素上计算：水平、垂直两个方向的权重预先算好，
+ * 每个输出像素取其覆盖的全部源像素的加权平均，不会像单次双线性缩放那样丢失像素产生锯齿。
+ * 颜色按预乘透明度累加，透明边缘不会发黑。源图较大时按输出行拆分到 ForkJoin 任务，在调用方传入的
+ * 线程池（通常是 {@link cc.lik.coverImage.config.ImageWorkers#rowPool()}）上并行计算。
+ * 放大时退回 Java2D 双三次插值。</p>
+ */
+public final class ImageResizer {
+    /**
+     * 源图像素数超过该值时并行计算
+     */
+    private static final int PARALLEL_THRESHOLD = 512 * 512;
+    /**
+     * 单个任务至少处理的行数
+     */
+    private static final int MIN_ROWS_PER_TASK = 16;
+
+    private ImageResizer() {
+        throw new AssertionError("工具类不应被实例化");
+    }
+
+    /**
+     * 保持宽高比缩放到 maxWidth x maxHeight 以内
+     *
+     * @param alpha 是否保留透明通道，不保留时透明区域以白色填充
+     * @param rowPool 按行并行计算使用的线程池
+     */
+    public static BufferedImage fit(BufferedImage source, int maxWidth, int maxHeight,
+        boolean alpha, ForkJoinPool rowPool) {
+        double ratio = Math.min(maxWidth / (double) source.getWidth(),
+            maxHeight / (double) source.getHeight());
+        int width = Math.clamp(Math.round(source.getWidth() * ratio), 1, maxWidth);
+        int height = Math.clamp(Math.round(source.getHeight() * ratio), 1, maxHeight);
+        return resize(source, width, height, alpha, rowPool);
+    }
+
+    /**
+     * 缩放到指定尺寸，结果为 {@code TYPE_INT_ARGB} 或 {@code TYPE_INT_RGB}
+     *
+     * @param alpha 是否保留透明通道，不保留时透明区域以白色填充
+     * @param rowPool 按行并行计算使用的线程池
+     */
+    public static BufferedImage resize(BufferedImage source, int width, int height,
+        boolean alpha, ForkJoinPool rowPool) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("目标尺寸无效: " + width + "x" + height);
+        }
+        if (width > source.getWidth() || height > source.getHeight()) {
+            return interpolate(source, width, height, alpha);
+        }
+        int sourceWidth = source.getWidth();
+        int[] pixels = pixels(source);
+        boolean opaque = !source.getColorModel().hasAlpha();
+        var horizontal = Weights.of(sourceWidth, width);
+        var vertical = Weights.of(source.getHeight(), height);
+        var result = new BufferedImage(width, height,
+            alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] output = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        boolean parallel = (long) sourceWidth * source.getHeight() >= PARALLEL_THRESHOLD;
+        run(rowPool, height, parallel, (from, to) -> {
+            // 按预乘后的 ARGB 四个通道累加，每个输出行只需一行大小的缓冲
+            float[] sum = new float[width * 4];
+            for (int y = from; y < to; y++) {
+                Arrays.fill(sum, 0f);
+                int offset = y * vertical.stride;
+                for (int i = 0; i < vertical.counts[y]; i++) {
+                    int row = (vertical.firsts[y] + i) * sourceWidth;
+                    accumulateRow(pixels, row, opaque, horizontal, vertical.weights[offset + i], sum);
+                }
+                for (int x = 0; x < width; x++) {
+                    output[y * width + x] = pack(sum, x * 4, alpha);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 源行按水平权重缩小后，乘以该行的垂直权重累加到 sum
+     */
+    private static void accumulateRow(int[] pixels, int rowOffset, boolean opaque,
+        Weights weights, float rowWeight, float[] sum) {
+        for (int x = 0; x < weights.counts.length; x++) {
+            float a = 0;
+            float r = 0;
+            float g = 0;
+            float b = 0;
+            int offset = x * weights.stride;
+            int first = rowOffset + weights.firsts[x];
+            for (int i = 0; i < weights.counts[x]; i++) {
+                int argb = pixels[first + i];
+                float weight = weights.weights[offset + i];
+                float alpha = opaque ? weight : (argb >>> 24) / 255f * weight;
+                a += alpha;
+                r += ((argb >> 16) & 0xff) * alpha;
+                g += ((argb >> 8) & 0xff) * alpha;
+                b += (argb & 0xff) * alpha;
+            }
+            int target = x * 4;
+            sum[target] += a * rowWeight;
+            sum[target + 1] += r * rowWeight;
+            sum[target + 2] += g * rowWeight;
+            sum[target + 3] += b * rowWeight;
+        }
+    }
+
+    /**
+     * 取得 ARGB 像素，{@code TYPE_INT_ARGB} 与 {@code TYPE_INT_RGB} 直接使用底层数组
+     */
+    private static int[] pixels(BufferedImage source) {
+        int type = source.getType();
+        if ((type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+            && source.getRaster().getDataBuffer() instanceof DataBufferInt buffer
+            && buffer.getNumBanks() == 1 && source.getRaster().getParent() == null
+            && buffer.getData().length == source.getWidth() * source.getHeight()) {
+            return buffer.getData();
+        }
+        return source.getRGB(0, 0, source.getWidth(), source.getHeight(), null, 0,
+            source.getWidth());
+    }
+
+    private static int pack(float[] sum, int offset, boolean alpha) {
+        float a = sum[offset];
+        float r = sum[offset + 1];
+        float g = sum[offset + 2];
+        float b = sum[offset + 3];
+        if (!alpha) {
+            // 预乘后的颜色叠加到白色背景
+            float background = 255f * (1f - a);
+            return 0xff000000 | channel(r + background) << 16 | channel(g + background) << 8
+                | channel(b + background);
+        }
+        if (a * 255f < 0.5f) {
+            return 0;
+        }
+        return channel(a * 255f) << 24 | channel(r / a) << 16 | channel(g / a) << 8
+            | channel(b / a);
+    }
+
+    private static int channel(float value) {
+        return Math.clamp(Math.round(value), 0, 255);
+    }
+
+    /**
+     * 放大或单方向放大时使用双三次插值
+     */
+    private static BufferedImage interpolate(BufferedImage source, int width, int height,
+        boolean alpha) {
+        var result = new BufferedImage(width, height,
+            alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, alpha ? null : Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+
+    private static void run(ForkJoinPool pool, int rows, boolean parallel, RowRange task) {
+        if (!parallel || rows < MIN_ROWS_PER_TASK * 2) {
+            task.apply(0, rows);
+            return;
+        }
+        int granularity = Math.max(MIN_ROWS_PER_TASK, rows / (pool.getParallelism() * 4));
+        pool.invoke(new RowTask(task, 0, rows, granularity));
+    }
+
+    @FunctionalInterface
+    private interface RowRange {
+        void apply(int from, int to);
+    }
+
+    private static final class RowTask extends RecursiveAction {
+        private final RowRange task;
+        private final int from;
+        private final int to;
+        private final int granularity;
+
+        RowTask(RowRange task, int from, int to, int granularity) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.granularity = granularity;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= granularity) {
+                task.apply(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowTask(task, from, middle, granularity),
+                new RowTask(task, middle, to, granularity));
+        }
+    }
+
+    /**
+     * 一个方向上每个输出像素覆盖的源像素范围与权重，权重之和为 1
+     */
+    private static final class Weights {
+        private final int[] firsts;
+        private final int[] counts;
+        private final float[] weights;
+        private final int stride;
+
+        private Weights(int[] firsts, int[] counts, float[] weights, int stride) {
+            this.firsts = firsts;
+            this.counts = counts;
+            this.weights = weights;
+            this.stride = stride;
+        }
+
+        static Weights of(int sourceSize, int targetSize) {
+            double scale = sourceSize / (double) targetSize;
+            int stride = (int) Math.ceil(scale) + 1;
+            int[] firsts = new int[targetSize];
+            int[] counts = new int[targetSize];
+            float[] weights = new float[targetSize * stride];
+            for (int i = 0; i < targetSize; i++) {
+                double start = i * scale;
+                double end = Math.min(sourceSize, (i + 1) * scale);
+                int first = (int) Math.floor(start);
+                int last = Math.min(sourceSize, (int) Math.ceil(end));
+                firsts[i] = first;
+                counts[i] = last - first;
+                for (int j = first; j < last; j++) {
+                    double coverage = Math.min(end, j + 1) - Math.max(start, j);
+                    weights[i * stride + j - first] = (float) (coverage / scale);
+                }
+            }
+            return new Weights(firsts, counts, weights, stride);
+        }
+    }
+}
@@ -2,12 +2,24 @@ package cc.lik.coverImage.util;
 
 import java.util.Optional;
 import cc.lik.coverImage.constant.ImageConstants;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * 图片工具类
  */
+@Slf4j
 public final class ImageUtils {
+    private static final String TEMP_FILE_PREFIX = "coverimage-";
+
     private ImageUtils() {
         throw new AssertionError("工具类不应被实例化");
     }
@@ -40,4 +52,90 @@ public final class ImageUtils {
         var extension = getFileExtension(url).toLowerCase();
         return ImageConstants.EXTENSION_TO_MEDIA_TYPE.getOrDefault(extension, MediaType.IMAGE_JPEG);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 限制数据流的总字节数，超过时释放当前缓冲区并以错误结束
+     */
+    public static Flux<DataBuffer> limitSize(Flux<DataBuffer> content, long maxBytes) {
+        return Flux.defer(() -> {
+            var received = new AtomicLong();
+            return content.handle((buffer, sink) -> {
+                if (received.addAndGet(buffer.readableByteCount()) > maxBytes) {
+                    DataBufferUtils.release(buffer);
+                    sink.error(new IllegalArgumentException("图片大小超过上限 " + maxBytes + " 字节"));
+                    return;
+                }
+                sink.next(buffer);
+            });
+        });
+    }
+
+    /**
+     * 创建暂存图片内容的临时文件
+     */
+    public static Mono<Path> createTempFile() {
+        return Mono.fromCallable(() -> Files.createTempFile(TEMP_FILE_PREFIX, ".tmp"))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 将数据流写入新的临时文件，缓冲区写入后即释放；写入失败或取消时删除该文件
+     */
+    public static Mono<Path> writeTempFile(Flux<DataBuffer> content) {
+        return createTempFile()
+            .flatMap(file -> DataBufferUtils.write(content, file)
+                .thenReturn(file)
+                .onErrorResume(e -> deleteTempFile(file).then(Mono.error(e)))
+                .doOnCancel(() -> deleteTempFile(file).subscribe()));
+    }
+
+    /**
+     * 删除临时文件，失败时只记录日志
+     */
+    public static Mono<Void> deleteTempFile(Path file) {
+        return Mono.fromCallable(() -> Files.deleteIfExists(file))
+            .subscribeOn(Schedulers.boundedElastic())
+            .onErrorResume(e -> {
+                log.warn("删除临时文件失败: {}, 错误: {}", file, e.getMessage());
+                return Mono.just(false);
+            })
+            .then();
+    }
+
+    /**
+     * 根据文件头识别图片类型，无法识别时返回空
+     */
+    public static Optional<MediaType> detectMediaType(DataBuffer buffer) {
+        int count = Math.min(buffer.readableByteCount(), 12);
+        var header = new byte[count];
+        for (int i = 0; i < count; i++) {
+            header[i] = buffer.getByte(buffer.readPosition() + i);
+        }
+        if (startsWith(header, 0x89, 'P', 'N', 'G')) {
+            return Optional.of(MediaType.IMAGE_PNG);
+        }
+        if (startsWith(header, 0xFF, 0xD8, 0xFF)) {
+            return Optional.of(MediaType.IMAGE_JPEG);
+        }
+        if (startsWith(header, 'G', 'I', 'F', '8')) {
+            return Optional.of(MediaType.IMAGE_GIF);
+        }
+        if (count >= 12 && startsWith(header, 'R', 'I', 'F', 'F')
+            && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return Optional.of(MediaType.parseMediaType("image/webp"));
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] header, int... magic) {
+        if (header.length < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((header[i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,213 @@
+package cc.lik.coverImage.util;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 单个上游的令牌桶限流与并发上限
+ *
+ * <p>请求需同时取得一个令牌和一个并发名额才会发出；条件不满足时进入先进先出队列，
+ * 队首未放行前后续请求不会插队。超过排队期限的请求以 {@link QueueTimeoutException} 结束。</p>
+ */
+public final class ProviderThrottle {
+    private final String name;
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+
+    private Limits limits;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private int inFlight;
+    private boolean drainScheduled;
+
+    /**
+     * 限流参数
+     *
+     * @param ratePerMinute 每分钟补充的令牌数
+     * @param burst 令牌桶容量
+     * @param maxConcurrent 同时进行的最大请求数
+     * @param maxQueued 排队的最大请求数
+     * @param queueTimeout 排队期限
+     */
+    public record Limits(double ratePerMinute, int burst, int maxConcurrent, int maxQueued,
+                         Duration queueTimeout) {
+        public Limits {
+            ratePerMinute = Math.max(0.1, ratePerMinute);
+            burst = Math.max(1, burst);
+            maxConcurrent = Math.max(1, maxConcurrent);
+            maxQueued = Math.max(0, maxQueued);
+        }
+    }
+
+    public ProviderThrottle(String name, Limits limits) {
+        this.name = name;
+        this.limits = limits;
+        this.tokens = limits.burst();
+    }
+
+    /**
+     * 更新限流参数，已排队的请求保留
+     */
+    public void update(Limits newLimits) {
+        synchronized (this) {
+            if (newLimits.equals(limits)) {
+                return;
+            }
+            refill();
+            limits = newLimits;
+            tokens = Math.min(tokens, newLimits.burst());
+        }
+        drain();
+    }
+
+    /**
+     * 取得名额后执行调用，调用结束（含取消）后归还并发名额
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.usingWhen(acquire(),
+            permit -> call.get(),
+            permit -> Mono.fromRunnable(permit::release),
+            (permit, e) -> Mono.fromRunnable(permit::release),
+            permit -> Mono.fromRunnable(permit::release));
+    }
+
+    private Mono<Permit> acquire() {
+        Duration timeout;
+        synchronized (this) {
+            timeout = limits.queueTimeout();
+        }
+        return Mono.<Permit>create(sink -> {
+                var waiter = new Waiter(sink);
+                sink.onCancel(() -> cancel(waiter));
+                boolean rejected;
+                synchronized (this) {
+                    rejected = queue.size() >= limits.maxQueued() && !canStart();
+                    if (!rejected) {
+                        queue.addLast(waiter);
+                    }
+                }
+                if (rejected) {
+                    sink.error(new QueueTimeoutException(name + " 排队请求过多，请稍后重试"));
+                    return;
+                }
+                drain();
+            })
+            .timeout(timeout, Mono.error(() -> new QueueTimeoutException(
+                name + " 排队超过 " + timeout.toSeconds() + " 秒，请稍后重试")));
+    }
+
+    /**
+     * 按先进先出放行队首请求，直到令牌或并发名额不足
+     */
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        long waitNanos = 0;
+        synchronized (this) {
+            refill();
+            while (!queue.isEmpty() && canStart()) {
+                var waiter = queue.pollFirst();
+                tokens -= 1;
+                inFlight++;
+                waiter.granted = true;
+                granted.add(waiter);
+            }
+            if (!queue.isEmpty() && inFlight < limits.maxConcurrent() && !drainScheduled) {
+                // 只差令牌时，等到下一个令牌补充后再放行
+                drainScheduled = true;
+                waitNanos = (long) ((1 - tokens) / tokensPerNano());
+            }
+        }
+        granted.forEach(waiter -> waiter.sink.success(new Permit()));
+        if (waitNanos > 0) {
+            Schedulers.parallel().schedule(() -> {
+                synchronized (this) {
+                    drainScheduled = false;
+                }
+                drain();
+            }, Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos)), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        boolean release;
+        synchronized (this) {
+            queue.remove(waiter);
+            // 已放行但订阅方已取消，名额需要归还
+            release = waiter.granted;
+        }
+        if (release) {
+            releaseSlot();
+        }
+    }
+
+    private void releaseSlot() {
+        synchronized (this) {
+            inFlight = Math.max(0, inFlight - 1);
+        }
+        drain();
+    }
+
+    private boolean canStart() {
+        return tokens >= 1 && inFlight < limits.maxConcurrent();
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(limits.burst(), tokens + (now - lastRefillNanos) * tokensPerNano());
+        lastRefillNanos = now;
+    }
+
+    private double tokensPerNano() {
+        return limits.ratePerMinute() / TimeUnit.MINUTES.toNanos(1);
+    }
+
+    /**
+     * 当前排队数
+     */
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    /**
+     * 当前进行中的请求数
+     */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Permit> sink;
+        private boolean granted;
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+
+    private final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                releaseSlot();
+            }
+        }
+    }
+
+    /**
+     * 排队超时或队列已满
+     */
+    public static class QueueTimeoutException extends IllegalStateException {
+        public QueueTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package cc.lik.coverImage.util;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * 按键合并并发调用：同一键同时只执行一次，期间到达的调用方共享其结果
+ *
+ * <p>调用结束（成功、为空或失败）后键即释放，之后的调用重新执行，结果不做缓存。
+ * 执行一旦开始，单个调用方取消订阅不会中止它，其余调用方仍能拿到结果；
+ * 只有 {@link #dispose()} 会中止所有进行中的调用。</p>
+ *
+ * @param <K> 键
+ * @param <V> 结果
+ */
+public final class SingleFlight<K, V> {
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * 执行或加入同一键的调用
+     *
+     * @param key 键，需实现 equals 与 hashCode
+     * @param call 没有进行中的调用时执行，以首个调用方的 Reactor Context 订阅
+     * @return 共享的结果
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.deferContextual(context -> {
+            var created = new boolean[1];
+            var flight = flights.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return new Flight<>();
+            });
+            if (created[0]) {
+                flight.start(Mono.defer(call)
+                    .doFinally(signal -> flights.remove(key, flight))
+                    .contextWrite(context));
+            }
+            return flight.result();
+        });
+    }
+
+    /**
+     * 该键当前是否有进行中的调用
+     */
+    public boolean isInFlight(K key) {
+        return flights.containsKey(key);
+    }
+
+    /**
+     * 进行中的调用数
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    /**
+     * 中止所有进行中的调用，等待中的调用方以 {@link CancellationException} 结束
+     */
+    public void dispose() {
+        flights.values().forEach(Flight::cancel);
+        flights.clear();
+    }
+
+    private static final class Flight<V> {
+        private final Sinks.One<V> sink = Sinks.one();
+        private volatile Disposable subscription;
+
+        void start(Mono<V> source) {
+            subscription = source.subscribe(sink::tryEmitValue, sink::tryEmitError,
+                sink::tryEmitEmpty);
+        }
+
+        Mono<V> result() {
+            return sink.asMono();
+        }
+
+        void cancel() {
+            var current = subscription;
+            if (current != null) {
+                current.dispose();
+            }
+            sink.tryEmitError(new CancellationException("调用已中止"));
+        }
+    }
+}
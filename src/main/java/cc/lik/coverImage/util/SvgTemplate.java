@@ -0,0 +1,134 @@
+package cc.lik.coverImage.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * 预编译的 SVG 模板
+ *
+ * <p>模板在启动时解析为字面量片段与 {@code ${name}} 占位符，渲染时一次性写入单个
+ * {@link DataBuffer}，不再产生中间字符串。指定的占位符在写入时做 XML 转义。</p>
+ */
+public final class SvgTemplate {
+    private static final String PLACEHOLDER_START = "${";
+    private static final String PLACEHOLDER_END = "}";
+
+    private final List<Segment> segments;
+    private final int literalLength;
+
+    private SvgTemplate(List<Segment> segments) {
+        this.segments = segments;
+        this.literalLength = segments.stream()
+            .mapToInt(segment -> segment instanceof Literal literal ? literal.bytes().length : 0)
+            .sum();
+    }
+
+    /**
+     * 解析模板
+     *
+     * @param template 模板内容
+     * @param escapedPlaceholders 需要 XML 转义的占位符名称
+     * @return 编译后的模板
+     */
+    public static SvgTemplate compile(String template, Set<String> escapedPlaceholders) {
+        var segments = new ArrayList<Segment>();
+        int pos = 0;
+        while (pos < template.length()) {
+            int start = template.indexOf(PLACEHOLDER_START, pos);
+            int end = start < 0 ? -1 : template.indexOf(PLACEHOLDER_END, start);
+            if (start < 0 || end < 0) {
+                segments.add(new Literal(template.substring(pos).getBytes(StandardCharsets.UTF_8)));
+                break;
+            }
+            if (start > pos) {
+                segments.add(new Literal(
+                    template.substring(pos, start).getBytes(StandardCharsets.UTF_8)));
+            }
+            String name = template.substring(start + PLACEHOLDER_START.length(), end);
+            segments.add(new Placeholder(name, escapedPlaceholders.contains(name)));
+            pos = end + PLACEHOLDER_END.length();
+        }
+        return new SvgTemplate(List.copyOf(segments));
+    }
+
+    /**
+     * 渲染模板，缺失的占位符按空字符串处理
+     *
+     * @param values 占位符取值
+     * @param bufferFactory 缓冲区工厂，调用方负责释放返回的缓冲区
+     * @return 渲染结果
+     */
+    public DataBuffer render(Map<String, String> values, DataBufferFactory bufferFactory) {
+        var buffer = bufferFactory.allocateBuffer(estimateSize(values));
+        try {
+            for (Segment segment : segments) {
+                switch (segment) {
+                    case Literal literal -> buffer.write(literal.bytes());
+                    case Placeholder placeholder -> {
+                        String value = values.getOrDefault(placeholder.name(), "");
+                        if (placeholder.escaped()) {
+                            writeEscaped(buffer, value);
+                        } else {
+                            buffer.write(value, StandardCharsets.UTF_8);
+                        }
+                    }
+                }
+            }
+            return buffer;
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+    }
+
+    private int estimateSize(Map<String, String> values) {
+        int size = literalLength;
+        for (Segment segment : segments) {
+            if (segment instanceof Placeholder placeholder) {
+                // 按 UTF-8 与实体转义的最坏情况估算，避免写入过程中扩容
+                int perChar = placeholder.escaped() ? 6 : 3;
+                size += values.getOrDefault(placeholder.name(), "").length() * perChar;
+            }
+        }
+        return size;
+    }
+
+    private static void writeEscaped(DataBuffer buffer, String value) {
+        int runStart = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String entity = switch (value.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                case '"' -> "&quot;";
+                case '\'' -> "&apos;";
+                default -> null;
+            };
+            if (entity != null) {
+                if (i > runStart) {
+                    buffer.write(value.subSequence(runStart, i), StandardCharsets.UTF_8);
+                }
+                buffer.write(entity, StandardCharsets.US_ASCII);
+                runStart = i + 1;
+            }
+        }
+        if (runStart < value.length()) {
+            buffer.write(value.subSequence(runStart, value.length()), StandardCharsets.UTF_8);
+        }
+    }
+
+    private sealed interface Segment permits Literal, Placeholder {
+    }
+
+    private record Literal(byte[] bytes) implements Segment {
+    }
+
+    private record Placeholder(String name, boolean escaped) implements Segment {
+    }
+}
@@ -0,0 +1,139 @@
+package cc.lik.coverImage.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+class Base64FieldDecoderTest {
+    private static final DefaultDataBufferFactory FACTORY = DefaultDataBufferFactory.sharedInstance;
+
+    @Test
+    void decodesFieldWhenKeysAreSplitAcrossBuffers() {
+        byte[] image = randomBytes(3000, 1);
+        String json = geminiResponse(Base64.getEncoder().encodeToString(image));
+        // 在 "inlineData"、"data" 两个键的中间以及值的中间切开
+        int parentKey = json.indexOf("inlineData") + 5;
+        int key = json.indexOf("\"data\"") + 3;
+        int value = json.indexOf("\"data\"") + 100;
+
+        byte[] decoded = decode(split(json, parentKey, key, value));
+
+        assertArrayEquals(image, decoded);
+    }
+
+    @Test
+    void decodesEveryByteWhenDeliveredOneAtATime() {
+        byte[] image = randomBytes(300, 2);
+        String json = geminiResponse(Base64.getEncoder().encodeToString(image));
+        int[] positions = new int[json.length() - 1];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i + 1;
+        }
+
+        assertArrayEquals(image, decode(split(json, positions)));
+    }
+
+    @Test
+    void unescapesSlashesInBase64Value() {
+        // 0xff 编码为 "////"，JSON 序列化时可能写成 "\/"
+        byte[] image = new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, 1, 2, 3, (byte) 0xfb};
+        String base64 = Base64.getEncoder().encodeToString(image);
+        assertTrue(base64.contains("/"));
+        String json = geminiResponse(base64.replace("/", "\\/"));
+        int escape = json.indexOf("\\/") + 1;
+
+        assertArrayEquals(image, decode(split(json, escape)));
+    }
+
+    @Test
+    void decodesValueLongerThanOneChunk() {
+        byte[] image = randomBytes(200_000, 3);
+        String json = geminiResponse(Base64.getEncoder().encodeToString(image));
+
+        assertArrayEquals(image, decode(split(json, json.length() / 3, json.length() / 2)));
+    }
+
+    @Test
+    void skipsFieldsWithSameKeyUnderOtherParents() {
+        byte[] image = randomBytes(64, 4);
+        String json = "{\"other\":{\"data\":\"AAAA\"},\"inlineData\":{\"data\":\""
+            + Base64.getEncoder().encodeToString(image) + "\"}}";
+
+        assertArrayEquals(image, decode(split(json)));
+    }
+
+    @Test
+    void emitsNothingWhenFieldIsMissing() {
+        String json = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"blocked\"}]}}]}";
+
+        List<DataBuffer> buffers = Base64FieldDecoder.decode(split(json), "inlineData", "data",
+                FACTORY)
+            .collectList()
+            .block();
+
+        assertTrue(buffers == null || buffers.isEmpty());
+    }
+
+    @Test
+    void failsWhenBodyEndsInsideValue() {
+        byte[] image = randomBytes(3000, 5);
+        String json = geminiResponse(Base64.getEncoder().encodeToString(image));
+        String truncated = json.substring(0, json.indexOf("\"data\"") + 500);
+
+        var error = assertThrows(IllegalStateException.class, () -> decode(split(truncated)));
+        assertTrue(error.getMessage().contains("中断"));
+    }
+
+    private static byte[] decode(Flux<DataBuffer> body) {
+        var output = new ByteArrayOutputStream();
+        Base64FieldDecoder.decode(body, "inlineData", "data", FACTORY)
+            .doOnNext(buffer -> {
+                byte[] bytes = new byte[buffer.readableByteCount()];
+                buffer.read(bytes);
+                DataBufferUtils.release(buffer);
+                output.writeBytes(bytes);
+            })
+            .blockLast();
+        return output.toByteArray();
+    }
+
+    /**
+     * 按给定位置把 JSON 切成多个缓冲区
+     */
+    private static Flux<DataBuffer> split(String json, int... positions) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        var chunks = new ArrayList<byte[]>();
+        int start = 0;
+        for (int position : positions) {
+            chunks.add(Arrays.copyOfRange(bytes, start, position));
+            start = position;
+        }
+        chunks.add(Arrays.copyOfRange(bytes, start, bytes.length));
+        return Flux.fromIterable(chunks).map(FACTORY::wrap);
+    }
+
+    private static String geminiResponse(String data) {
+        return "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"ok\"},{\"inlineData\":"
+            + "{\"mimeType\":\"image/png\",\"data\":\"" + data + "\"}}],\"role\":\"model\"},"
+            + "\"finishReason\":\"STOP\"}],\"usageMetadata\":{\"totalTokenCount\":1290}}";
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
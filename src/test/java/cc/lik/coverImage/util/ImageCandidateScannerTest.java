@@ -0,0 +1,130 @@
+package cc.lik.coverImage.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ImageCandidateScannerTest {
+
+    @Test
+    void readsInlineMarkdownImageWithTitle() {
+        assertEquals(Optional.of("https://x/a.png"),
+            ImageCandidateScanner.first("![a](https://x/a.png \"title\")", true));
+    }
+
+    @Test
+    void keepsParenthesesAndSpacesInDestination() {
+        assertEquals(Optional.of("https://x/p_(1).png"),
+            ImageCandidateScanner.first("![a](https://x/p_(1).png)", true));
+        assertEquals(Optional.of("https://x/with space.png"),
+            ImageCandidateScanner.first("![a](<https://x/with space.png>)", true));
+    }
+
+    @Test
+    void resolvesReferenceImages() {
+        String full = "Intro ![logo][ref] end\n\n[ref]: https://x/r.png \"t\"\n";
+        // 引用标签不区分大小写，连续空白视为一个
+        String shortcut = "![Ref]\n\n[ref]: <https://x/c.png>\n";
+        String collapsed = "![My  Logo][]\n\n[my logo]: https://x/e.png\n";
+
+        assertEquals(Optional.of("https://x/r.png"), ImageCandidateScanner.first(full, true));
+        assertEquals(Optional.of("https://x/c.png"), ImageCandidateScanner.first(shortcut, true));
+        assertEquals(Optional.of("https://x/e.png"), ImageCandidateScanner.first(collapsed, true));
+    }
+
+    @Test
+    void skipsUndefinedReference() {
+        assertEquals(Optional.of("https://x/out.png"),
+            ImageCandidateScanner.first("![missing][nope] ![b](https://x/out.png)", true));
+    }
+
+    @Test
+    void skipsImagesInsideCodeFencesAndSpans() {
+        String fenced = "```\n![a](https://x/in-code.png)\n<img src=\"https://x/tag.png\">\n```\n"
+            + "![b](https://x/out.png)";
+        String inline = "Use `![a](https://x/inline.png)` here ![b](https://x/out.png)";
+        String longerFence = "````\n```\n![a](https://x/nested.png)\n```\n````\n![b](https://x/out.png)";
+
+        assertEquals(Optional.of("https://x/out.png"), ImageCandidateScanner.first(fenced, true));
+        assertEquals(Optional.of("https://x/out.png"), ImageCandidateScanner.first(inline, true));
+        assertEquals(Optional.of("https://x/out.png"),
+            ImageCandidateScanner.first(longerFence, true));
+    }
+
+    @Test
+    void skipsEscapedImageSyntax() {
+        assertEquals(Optional.of("https://x/out.png"),
+            ImageCandidateScanner.first("\\![a](https://x/escaped.png) ![b](https://x/out.png)",
+                true));
+    }
+
+    @Test
+    void prefersLazyLoadAttributeOverPlaceholderSrc() {
+        String html = "<p><img src=\"data:image/gif;base64,R0l\" data-src=\"https://x/real.jpg\"></p>";
+
+        assertEquals(Optional.of("https://x/real.jpg"), ImageCandidateScanner.first(html, false));
+    }
+
+    @Test
+    void picksWidestSrcsetCandidate() {
+        String html = "<img srcset=\"https://x/s.jpg 480w, https://x/l.jpg 1200w, https://x/m.jpg 800w\""
+            + " src=\"https://x/fallback.jpg\">";
+
+        assertEquals(Optional.of("https://x/l.jpg"), ImageCandidateScanner.first(html, false));
+    }
+
+    @Test
+    void picksHighestDensitySrcsetCandidate() {
+        String html = "<img data-srcset=\"https://x/1x.jpg 1x, https://x/2x.jpg 2x\" src=\"https://x/a.jpg\">";
+
+        assertEquals(Optional.of("https://x/2x.jpg"), ImageCandidateScanner.first(html, false));
+    }
+
+    @Test
+    void skipsDataPlaceholders() {
+        assertEquals(Optional.of("https://x/out.png"),
+            ImageCandidateScanner.first("![a](data:image/png;base64,AAA) ![b](https://x/out.png)",
+                true));
+        assertEquals(Optional.of("https://x/second.jpg"),
+            ImageCandidateScanner.first(
+                "<img src=\"data:image/gif;base64,R0l\"><img src=\"https://x/second.jpg\">", false));
+        assertTrue(ImageCandidateScanner.first("<img src=\"data:image/gif;base64,R0l\">", false)
+            .isEmpty());
+    }
+
+    @Test
+    void decodesEntitiesAndAcceptsLooseAttributeSyntax() {
+        assertEquals(Optional.of("https://x/a.jpg?w=1&h=2"),
+            ImageCandidateScanner.first("<img src=\"https://x/a.jpg?w=1&amp;h=2\">", false));
+        assertEquals(Optional.of("https://x/upper.jpg"),
+            ImageCandidateScanner.first("<IMG SRC='https://x/upper.jpg' />", false));
+        // <image> 不是 img 标签
+        assertEquals(Optional.of("https://x/unquoted.jpg"),
+            ImageCandidateScanner.first(
+                "<image src=\"https://x/no.jpg\"><img src=https://x/unquoted.jpg>", false));
+    }
+
+    @Test
+    void htmlContentDoesNotSkipBackticks() {
+        assertEquals(Optional.of("https://x/tag.jpg"),
+            ImageCandidateScanner.first("```\n<img src=\"https://x/tag.jpg\">\n```", false));
+    }
+
+    @Test
+    void returnsDistinctImagesInOrderUpToLimit() {
+        String markdown = "![a](https://x/1.png) ![b](https://x/1.png) <img src=\"https://x/2.png\">"
+            + " ![c](https://x/3.png)";
+
+        assertEquals(List.of("https://x/1.png", "https://x/2.png"),
+            ImageCandidateScanner.all(markdown, true, 2));
+    }
+
+    @Test
+    void returnsEmptyWithoutImages() {
+        assertTrue(ImageCandidateScanner.first("no images", true).isEmpty());
+        assertTrue(ImageCandidateScanner.first(null, false).isEmpty());
+    }
+}
@@ -0,0 +1,226 @@
+package cc.lik.coverImage.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import cc.lik.coverImage.model.ImageInfo;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ImageHeaderParserTest {
+
+    @Test
+    void parsesPng() {
+        assertParsesAndTolerantOfTruncation(png(1200, 630), new ImageInfo("png", 1200, 630));
+    }
+
+    @Test
+    void parsesGif() {
+        byte[] gif = concat(ascii("GIF89a"), le16(320), le16(240), bytes(0xF7, 0, 0));
+
+        assertParsesAndTolerantOfTruncation(gif, new ImageInfo("gif", 320, 240));
+    }
+
+    @Test
+    void walksJpegSegmentsPastFillBytesAndStandaloneMarkers() {
+        byte[] jpeg = concat(bytes(0xFF, 0xD8),
+            segment(0xE0, ascii("JFIF\0"), new byte[9]),
+            // 段之间的填充字节与不带长度的 RST 标记
+            bytes(0xFF, 0xFF, 0xFF),
+            bytes(0xFF, 0xD3),
+            segment(0xDB, new byte[65]),
+            // DHT、JPG、DAC 虽在 C0-CF 范围内，但不是帧头
+            segment(0xC4, new byte[20]),
+            segment(0xC8, new byte[2]),
+            segment(0xCC, new byte[2]),
+            startOfFrame(0xC0, 1080, 1920));
+
+        assertParsesAndTolerantOfTruncation(jpeg, new ImageInfo("jpeg", 1920, 1080));
+    }
+
+    @Test
+    void readsEveryStartOfFrameVariant() {
+        for (int marker : new int[] {0xC0, 0xC1, 0xC2, 0xC3, 0xC5, 0xC6, 0xC7, 0xC9, 0xCA, 0xCB,
+            0xCD, 0xCE, 0xCF}) {
+            byte[] jpeg = concat(bytes(0xFF, 0xD8), segment(0xE1, new byte[30]),
+                startOfFrame(marker, 480, 640));
+
+            assertEquals(Optional.of(new ImageInfo("jpeg", 640, 480)),
+                ImageHeaderParser.parse(jpeg, jpeg.length), "SOF 0x" + Integer.toHexString(marker));
+        }
+    }
+
+    @Test
+    void rejectsJpegWithBrokenSegmentChain() {
+        byte[] jpeg = concat(bytes(0xFF, 0xD8), segment(0xE0, new byte[4]), bytes(0x12, 0x34, 0, 0));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageHeaderParser.parse(jpeg, jpeg.length));
+    }
+
+    @Test
+    void masksVp8ScalingBits() {
+        // 宽高的最高两位是缩放系数
+        byte[] frame = concat(bytes(0x30, 0x01, 0x00), bytes(0x9D, 0x01, 0x2A),
+            le16(0x4000 | 1024), le16(0xC000 | 768));
+
+        assertParsesAndTolerantOfTruncation(webp("VP8 ", frame), new ImageInfo("webp", 1024, 768));
+    }
+
+    @Test
+    void unpacksVp8LosslessDimensions() {
+        int width = 12345;
+        int height = 9876;
+        int bits = (width - 1) | (height - 1) << 14 | 1 << 28;
+        byte[] frame = concat(bytes(0x2F), le32(bits), new byte[5]);
+
+        assertParsesAndTolerantOfTruncation(webp("VP8L", frame),
+            new ImageInfo("webp", width, height));
+    }
+
+    @Test
+    void readsVp8xCanvasSize() {
+        byte[] frame = concat(bytes(0x10, 0, 0, 0), le24(4096 - 1), le24(2304 - 1));
+
+        assertParsesAndTolerantOfTruncation(webp("VP8X", frame), new ImageInfo("webp", 4096, 2304));
+    }
+
+    @Test
+    void rejectsRiffThatIsNotWebp() {
+        byte[] wave = concat(ascii("RIFF"), le32(100), ascii("WAVEfmt "), new byte[20]);
+
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageHeaderParser.parse(wave, wave.length));
+    }
+
+    @Test
+    void readsBottomUpAndTopDownBmp() {
+        assertParsesAndTolerantOfTruncation(bmp(800, 600), new ImageInfo("bmp", 800, 600));
+        // 高度为负表示自上而下存储
+        assertParsesAndTolerantOfTruncation(bmp(800, -600), new ImageInfo("bmp", 800, 600));
+    }
+
+    @Test
+    void readsSvgWidthAndHeight() {
+        byte[] svg = utf8("<?xml version=\"1.0\"?>\n<!-- logo -->\n"
+            + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"120.5px\" height='60'"
+            + " viewBox=\"0 0 1200 600\"><rect/></svg>");
+
+        assertParsesAndTolerantOfTruncation(svg, new ImageInfo("svg", 120, 60));
+    }
+
+    @Test
+    void fallsBackToSvgViewBox() {
+        byte[] relative = utf8("<svg width=\"100%\" height=\"100%\" viewBox=\"0 0 1200 630\"></svg>");
+        byte[] viewBoxOnly = utf8("<svg viewBox=\"-10,-10, 640 , 360\"></svg>");
+        byte[] unsized = utf8("<svg xmlns=\"http://www.w3.org/2000/svg\"></svg>");
+
+        assertEquals(Optional.of(new ImageInfo("svg", 1200, 630)),
+            ImageHeaderParser.parse(relative, relative.length));
+        assertEquals(Optional.of(new ImageInfo("svg", 640, 360)),
+            ImageHeaderParser.parse(viewBoxOnly, viewBoxOnly.length));
+        assertEquals(Optional.of(new ImageInfo("svg", 0, 0)),
+            ImageHeaderParser.parse(unsized, unsized.length));
+    }
+
+    @Test
+    void rejectsUnknownContent() {
+        byte[] text = utf8("just some text, not an image");
+
+        assertThrows(IllegalArgumentException.class,
+            () -> ImageHeaderParser.parse(text, text.length));
+    }
+
+    @Test
+    void honoursLengthInsteadOfArraySize() {
+        byte[] buffer = Arrays.copyOf(png(64, 32), 4096);
+
+        assertEquals(Optional.empty(), ImageHeaderParser.parse(buffer, 20));
+        assertEquals(Optional.of(new ImageInfo("png", 64, 32)), ImageHeaderParser.parse(buffer, 24));
+    }
+
+    /**
+     * 完整数据解析出 expected；任意长度的前缀都不抛异常，只返回空或同样的结果
+     */
+    private static void assertParsesAndTolerantOfTruncation(byte[] data, ImageInfo expected) {
+        assertEquals(Optional.of(expected), ImageHeaderParser.parse(data, data.length));
+        for (int length = 0; length < data.length; length++) {
+            byte[] prefix = Arrays.copyOf(data, length);
+            Optional<ImageInfo> result = ImageHeaderParser.parse(prefix, length);
+            assertTrue(result.isEmpty() || result.get().equals(expected),
+                "前 " + length + " 字节的结果: " + result);
+        }
+    }
+
+    private static byte[] png(int width, int height) {
+        return concat(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A),
+            be32(13), ascii("IHDR"), be32(width), be32(height), bytes(8, 6, 0, 0, 0));
+    }
+
+    private static byte[] segment(int marker, byte[]... payload) {
+        byte[] body = concat(payload);
+        return concat(bytes(0xFF, marker), be16(body.length + 2), body);
+    }
+
+    private static byte[] startOfFrame(int marker, int height, int width) {
+        return segment(marker, bytes(8), be16(height), be16(width), bytes(3, 1, 0x22, 0));
+    }
+
+    private static byte[] webp(String chunk, byte[] frame) {
+        return concat(ascii("RIFF"), le32(frame.length + 12), ascii("WEBP"), ascii(chunk),
+            le32(frame.length), frame);
+    }
+
+    private static byte[] bmp(int width, int height) {
+        return concat(ascii("BM"), le32(1000), le32(0), le32(54), le32(40), le32(width),
+            le32(height), le16(1), le16(24));
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        var out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] be16(int value) {
+        return bytes(value >> 8, value);
+    }
+
+    private static byte[] be32(int value) {
+        return bytes(value >> 24, value >> 16, value >> 8, value);
+    }
+
+    private static byte[] le16(int value) {
+        return bytes(value, value >> 8);
+    }
+
+    private static byte[] le24(int value) {
+        return bytes(value, value >> 8, value >> 16);
+    }
+
+    private static byte[] le32(int value) {
+        return bytes(value, value >> 8, value >> 16, value >> 24);
+    }
+}
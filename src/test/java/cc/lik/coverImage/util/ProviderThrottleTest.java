@@ -0,0 +1,142 @@
+package cc.lik.coverImage.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class ProviderThrottleTest {
+    private static final Duration QUEUE_TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void startsQueuedCallsInArrivalOrderWhenConcurrencyIsFull() throws Exception {
+        var throttle = new ProviderThrottle("test",
+            new ProviderThrottle.Limits(6000, 100, 1, 10, QUEUE_TIMEOUT));
+        var started = new CopyOnWriteArrayList<Integer>();
+        var blocker = Sinks.<Integer>one();
+        var calls = new ArrayList<Mono<Integer>>();
+        calls.add(throttle.execute(() -> {
+            started.add(0);
+            return blocker.asMono();
+        }));
+        for (int i = 1; i <= 5; i++) {
+            calls.add(recordingCall(throttle, started, i));
+        }
+
+        var results = Flux.merge(calls).collectList().toFuture();
+        assertEquals(List.of(0), started);
+        assertEquals(1, throttle.inFlight());
+        assertEquals(5, throttle.queued());
+
+        blocker.tryEmitValue(0);
+        results.get(5, TimeUnit.SECONDS);
+        assertEquals(IntStream.rangeClosed(0, 5).boxed().toList(), started);
+        assertEquals(0, throttle.inFlight());
+        assertEquals(0, throttle.queued());
+    }
+
+    @Test
+    void startsQueuedCallsInArrivalOrderWhenWaitingForTokens() throws Exception {
+        // 令牌桶只有一个令牌，之后每 20 毫秒补充一个
+        var throttle = new ProviderThrottle("test",
+            new ProviderThrottle.Limits(3000, 1, 10, 10, QUEUE_TIMEOUT));
+        var started = new CopyOnWriteArrayList<Integer>();
+        var calls = new ArrayList<Mono<Integer>>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(recordingCall(throttle, started, i));
+        }
+
+        var results = Flux.merge(calls).collectList().toFuture();
+        results.get(5, TimeUnit.SECONDS);
+
+        assertEquals(IntStream.range(0, 5).boxed().toList(), started);
+    }
+
+    @Test
+    void releasesPermitWhenRunningCallIsCancelled() {
+        var throttle = new ProviderThrottle("test",
+            new ProviderThrottle.Limits(6000, 100, 1, 10, QUEUE_TIMEOUT));
+        var next = new AtomicBoolean();
+        Disposable running = throttle.execute(Mono::never).subscribe();
+        Disposable waiting = throttle.execute(() -> {
+            next.set(true);
+            return Mono.never();
+        }).subscribe();
+        assertEquals(1, throttle.inFlight());
+        assertEquals(1, throttle.queued());
+
+        running.dispose();
+
+        assertTrue(next.get());
+        assertEquals(1, throttle.inFlight());
+        assertEquals(0, throttle.queued());
+        waiting.dispose();
+        assertEquals(0, throttle.inFlight());
+    }
+
+    @Test
+    void removesQueuedCallWhenItIsCancelled() {
+        var throttle = new ProviderThrottle("test",
+            new ProviderThrottle.Limits(6000, 100, 1, 10, QUEUE_TIMEOUT));
+        Disposable running = throttle.execute(Mono::never).subscribe();
+        Disposable waiting = throttle.execute(Mono::never).subscribe();
+        assertEquals(1, throttle.queued());
+
+        waiting.dispose();
+
+        assertEquals(0, throttle.queued());
+        assertEquals(1, throttle.inFlight());
+        running.dispose();
+        assertEquals(0, throttle.inFlight());
+    }
+
+    @Test
+    void rejectsCallWhenQueueIsFull() {
+        var throttle = new ProviderThrottle("test",
+            new ProviderThrottle.Limits(6000, 100, 1, 2, QUEUE_TIMEOUT));
+        var subscriptions = new ArrayList<Disposable>();
+        for (int i = 0; i < 3; i++) {
+            subscriptions.add(throttle.execute(Mono::never).subscribe());
+        }
+        assertEquals(1, throttle.inFlight());
+        assertEquals(2, throttle.queued());
+
+        assertThrows(ProviderThrottle.QueueTimeoutException.class,
+            () -> throttle.execute(() -> Mono.just(1)).block(Duration.ofSeconds(1)));
+        assertEquals(2, throttle.queued());
+        subscriptions.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void failsQueuedCallAfterQueueTimeout() {
+        var throttle = new ProviderThrottle("test",
+            new ProviderThrottle.Limits(6000, 100, 1, 10, Duration.ofMillis(100)));
+        Disposable running = throttle.execute(Mono::never).subscribe();
+
+        assertThrows(ProviderThrottle.QueueTimeoutException.class,
+            () -> throttle.execute(() -> Mono.just(1)).block(Duration.ofSeconds(5)));
+        assertEquals(0, throttle.queued());
+        assertEquals(1, throttle.inFlight());
+        running.dispose();
+    }
+
+    private static Mono<Integer> recordingCall(ProviderThrottle throttle, List<Integer> started,
+        int index) {
+        return throttle.execute(() -> Mono.fromSupplier(() -> {
+            started.add(index);
+            return index;
+        }));
+    }
+}